@@ -0,0 +1,116 @@
+package de.helwich.sudoku.bench;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.helwich.sudoku.client.Cell;
+import de.helwich.sudoku.client.Field2;
+import de.helwich.sudoku.client.FieldSolver;
+import de.helwich.sudoku.client.NotSolvableException;
+import de.helwich.sudoku.client.Type2;
+import de.helwich.sudoku.client.Type2.Group;
+import de.helwich.sudoku.solve.SudokuCover;
+
+/**
+ * Measures the propagation of {@link FieldSolver#setValue(Cell, BitSet)}
+ * while the givens of each puzzle of the corpus are set. The time of an
+ * operation is the time for the whole corpus of a grid. The 16x16 grid is
+ * left out because it needs several seconds per operation.
+ *
+ * @author Hendrik Helwich
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldSolverBenchmark {
+
+	@Param({ "2x2", "2x3", "3x3" })
+	public String grid;
+
+	private int size;
+	private Type2 type;
+	private String[] puzzles;
+	/** a new solver for each puzzle in which all values are possible */
+	private FieldSolver[] solvers;
+
+	@Setup
+	public void setUp() {
+		int boxHeight = Puzzles.getBoxHeight(grid);
+		int boxWidth = Puzzles.getBoxWidth(grid);
+		size = boxHeight * boxWidth;
+		type = createType(boxHeight, boxWidth);
+		puzzles = Puzzles.getCorpus(grid);
+		solvers = new FieldSolver[puzzles.length];
+	}
+
+	private static Type2 createType(int boxHeight, int boxWidth) {
+		int size = boxHeight * boxWidth;
+		String chars = Puzzles.getFieldChars(size);
+		List<Group> groups = new ArrayList<Group>();
+		for (int i = 0; i < size; i++) {
+			Cell[] row = new Cell[size];
+			Cell[] column = new Cell[size];
+			Cell[] box = new Cell[size];
+			int r0 = (i / boxHeight) * boxHeight;
+			int c0 = (i % boxHeight) * boxWidth;
+			for (int j = 0; j < size; j++) {
+				row[j] = new Cell(i, j);
+				column[j] = new Cell(j, i);
+				box[j] = new Cell(r0 + j / boxWidth, c0 + j % boxWidth);
+			}
+			groups.add(new Group(chars, row));
+			groups.add(new Group(chars, column));
+			groups.add(new Group(chars, box));
+		}
+		return new Type2(groups.toArray(new Group[groups.size()]));
+	}
+
+	@Setup(Level.Invocation)
+	public void createSolvers() {
+		BitSet all = new BitSet();
+		all.set(0, size);
+		for (int i = 0; i < solvers.length; i++) {
+			Field2 field = new Field2(type);
+			// the field must be filled before the solver is attached
+			for (int cell = 0; cell < size * size; cell++)
+				field.setValue(cell, all);
+			solvers[i] = new FieldSolver(field);
+		}
+	}
+
+	@Benchmark
+	public void setValue(Blackhole blackhole) throws NotSolvableException {
+		for (int i = 0; i < puzzles.length; i++) {
+			FieldSolver solver = solvers[i];
+			for (int cell = 0; cell < size * size; cell++) {
+				int value = SudokuCover.getValue(puzzles[i], cell, size);
+				if (value != -1) {
+					BitSet bitset = new BitSet();
+					bitset.set(value);
+					solver.setValue(new Cell(cell / size, cell % size), bitset);
+				}
+			}
+			blackhole.consume(solver.getField().isSolved());
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package de.helwich.sudoku.bench;
+
+import java.util.Random;
+
+import de.helwich.sudoku.solve.SudokuCover;
+
+/**
+ * The puzzle corpus of the benchmarks.
+ * A grid is named by its box size like <code>"2x3"</code> which is the box
+ * height and the box width. A puzzle has one character per cell in row order.
+ * The values are the characters <code>'1'</code> to <code>'9'</code> and
+ * <code>'a'</code> to <code>'z'</code>, all other characters are empty cells.
+ * The exact cover matrix of a grid is created by {@link SudokuCover} of the
+ * tests of the module sudoku-main.
+ *
+ * @author Hendrik Helwich
+ */
+public class Puzzles {
+
+	/** the part of the cells of a generated puzzle which hold a given */
+	private static final double[] GIVEN_RATIOS = { 0.5, 0.4, 0.3 };
+
+	private Puzzles() {}
+
+	public static int getBoxHeight(String grid) {
+		return Integer.parseInt(grid.substring(0, grid.indexOf('x')));
+	}
+
+	public static int getBoxWidth(String grid) {
+		return Integer.parseInt(grid.substring(grid.indexOf('x') + 1));
+	}
+
+	/**
+	 * Returns the puzzles of the given grid. The 9x9 corpus consists of the
+	 * known puzzles {@link SudokuCover#PUZZLES}. The puzzles of the other
+	 * grids are created from a solved grid by keeping the cells which are
+	 * chosen by a random number generator with a fixed seed, so they are the
+	 * same in each run.
+	 */
+	public static String[] getCorpus(String grid) {
+		int boxHeight = getBoxHeight(grid);
+		int boxWidth = getBoxWidth(grid);
+		if (boxHeight == 3 && boxWidth == 3)
+			return SudokuCover.PUZZLES.clone();
+		int size = boxHeight * boxWidth;
+		String[] puzzles = new String[GIVEN_RATIOS.length];
+		for (int i = 0; i < puzzles.length; i++) {
+			Random random = new Random(i);
+			StringBuilder sb = new StringBuilder();
+			for (int r = 0; r < size; r++)
+				for (int c = 0; c < size; c++)
+					if (random.nextDouble() < GIVEN_RATIOS[i]) {
+						// shift the values of each box row by the box width
+						// and of each box band by one
+						int value = (boxWidth * (r % boxHeight) + r / boxHeight + c) % size;
+						sb.append(Character.forDigit(value + 1, Character.MAX_RADIX));
+					} else
+						sb.append('0');
+			puzzles[i] = sb.toString();
+		}
+		return puzzles;
+	}
+
+	/**
+	 * Returns the characters of the values of a grid with the given size.
+	 */
+	public static String getFieldChars(int size) {
+		StringBuilder sb = new StringBuilder();
+		for (int value = 1; value <= size; value++)
+			sb.append(Character.forDigit(value, Character.MAX_RADIX));
+		return sb.toString();
+	}
+
+}
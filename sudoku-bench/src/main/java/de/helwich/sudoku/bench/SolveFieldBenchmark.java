@@ -0,0 +1,101 @@
+package de.helwich.sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.helwich.sudoku.client.Cell;
+import de.helwich.sudoku.client.SolveField;
+import de.helwich.sudoku.client.Type;
+import de.helwich.sudoku.client.TypeFactory;
+import de.helwich.sudoku.solve.SudokuCover;
+
+/**
+ * Measures the propagation of {@link SolveField#setBitset(int, int, int)}
+ * while the givens of each puzzle of the corpus are set. The time of an
+ * operation is the time for the whole corpus of a grid. The fields search
+ * subsets up to the given maximum size.
+ *
+ * @author Hendrik Helwich
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolveFieldBenchmark {
+
+	@Param({ "2x2", "2x3", "3x3", "4x4", "5x5" })
+	public String grid;
+
+	@Param({ "2", "4" })
+	public int maxSubsetSize;
+
+	private int size;
+	private Type type;
+	private String[] puzzles;
+	/** a new field for each puzzle in which all values are possible */
+	private SolveField[] fields;
+
+	@Setup
+	public void setUp() {
+		int boxHeight = Puzzles.getBoxHeight(grid);
+		int boxWidth = Puzzles.getBoxWidth(grid);
+		size = boxHeight * boxWidth;
+		// the type factory takes the box width first
+		type = TypeFactory.createDefaultType(boxWidth, boxHeight,
+				Puzzles.getFieldChars(size));
+		puzzles = Puzzles.getCorpus(grid);
+		fields = new SolveField[puzzles.length];
+	}
+
+	@Setup(Level.Invocation)
+	public void createFields() {
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = new UnsolvedField(type);
+			fields[i].setMaxSubsetSize(maxSubsetSize);
+		}
+	}
+
+	@Benchmark
+	public void setBitset(Blackhole blackhole) {
+		for (int i = 0; i < puzzles.length; i++) {
+			SolveField field = fields[i];
+			for (int cell = 0; cell < size * size; cell++) {
+				int value = SudokuCover.getValue(puzzles[i], cell, size);
+				if (value != -1)
+					field.setBitset(cell / size, cell % size, 1 << value);
+			}
+			blackhole.consume(field.getUniqueCellCount());
+		}
+	}
+
+	/**
+	 * A field in which each cell can hold all values. The values of the
+	 * cells of a {@link SolveField} can only be reduced.
+	 */
+	private static class UnsolvedField extends SolveField {
+
+		UnsolvedField(Type type) {
+			super(type);
+			int all = (1 << type.getFieldChars().length()) - 1;
+			for (Cell cell : type.getCellIndices())
+				setValue(cell.getRow(), cell.getColumn(), all);
+		}
+
+	}
+
+}
@@ -0,0 +1,174 @@
+package de.helwich.sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.helwich.sudoku.solve.SudokuCover;
+import de.helwich.sudoku.solve.XorMatrix;
+import de.helwich.sudoku.solve.XorMatrixFactory;
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
+
+/**
+ * Measures the removal of the rows of the givens of each puzzle of the corpus
+ * from the exact cover matrix and the restoration of the matrix. The time of
+ * an operation is the time for the whole corpus of a grid.
+ * Removing and restoring rows must not allocate once the reusable storage of
+ * the matrix has grown to its maximum size. This is checked by the test
+ * <code>XorMatrixAllocationTest</code> of the module sudoku-main. The gc
+ * profiler (<code>-prof gc</code>) reports a few bytes per operation for
+ * {@link #removeRow(Corpus, Blackhole)} which are allocated by the benchmark
+ * harness.
+ *
+ * @author Hendrik Helwich
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XorMatrixBenchmark {
+
+	@State(Scope.Thread)
+	public static class Corpus {
+
+		@Param({ "2x2", "2x3", "3x3", "4x4" })
+		public String grid;
+
+		@Param({ "NODES", "ARRAYS", "BITSETS" })
+		public Backing backing;
+
+		XorMatrix matrix;
+		/** the rows of the givens of each puzzle */
+		int[][] givenRows;
+
+		@Setup
+		public void setUp() {
+			int boxHeight = Puzzles.getBoxHeight(grid);
+			int boxWidth = Puzzles.getBoxWidth(grid);
+			XorMatrixFactory factory = new XorMatrixFactory();
+			factory.addXorColumns(SudokuCover.getColumnOffsets(boxHeight, boxWidth),
+					SudokuCover.getColumnRows(boxHeight, boxWidth));
+			matrix = factory.createXorMatrix(backing);
+			String[] puzzles = Puzzles.getCorpus(grid);
+			givenRows = new int[puzzles.length][];
+			for (int i = 0; i < puzzles.length; i++)
+				givenRows[i] = SudokuCover.getGivenRows(puzzles[i], boxHeight * boxWidth);
+		}
+
+	}
+
+	/**
+	 * Removes the givens of the first puzzle of the corpus from a copy of the
+	 * matrix.
+	 */
+	@State(Scope.Thread)
+	public static class PropagatedMatrix {
+
+		private XorMatrix matrix;
+
+		@Setup
+		public void setUp(Corpus corpus) {
+			matrix = corpus.matrix.copy();
+			matrix.removeRows(corpus.givenRows[0]);
+		}
+
+	}
+
+	/**
+	 * Removes the givens of one puzzle of the corpus before each invocation.
+	 * The puzzles are taken in turn by the invocations.
+	 */
+	@State(Scope.Thread)
+	public static class ReducedMatrix {
+
+		private XorMatrix matrix;
+		private int[][] givenRows;
+		private int puzzle;
+
+		/**
+		 * A state which is passed to a setup method is not the instance which
+		 * is passed to the benchmark methods, so the matrix is used by the
+		 * benchmark through this state.
+		 */
+		@Setup
+		public void setUp(Corpus corpus) {
+			matrix = corpus.matrix;
+			givenRows = corpus.givenRows;
+		}
+
+		@Setup(Level.Invocation)
+		public void removeGivens() {
+			matrix.removeRows(givenRows[puzzle]);
+			puzzle = (puzzle + 1) % givenRows.length;
+		}
+
+	}
+
+	/**
+	 * Removes the given rows one by one, so each removal cascades on its own.
+	 */
+	@Benchmark
+	public void removeRow(Corpus corpus, Blackhole blackhole) {
+		XorMatrix matrix = corpus.matrix;
+		for (int[] rows : corpus.givenRows) {
+			int mark = matrix.checkpoint();
+			for (int row : rows)
+				matrix.removeRow(row);
+			blackhole.consume(matrix.getColumnHeight(0));
+			matrix.rollback(mark);
+		}
+	}
+
+	@Benchmark
+	public void removeRows(Corpus corpus, Blackhole blackhole) {
+		XorMatrix matrix = corpus.matrix;
+		for (int[] rows : corpus.givenRows) {
+			int mark = matrix.checkpoint();
+			matrix.removeRows(rows);
+			blackhole.consume(matrix.getColumnHeight(0));
+			matrix.rollback(mark);
+		}
+	}
+
+	/**
+	 * Restores the matrix after the givens of a single puzzle have been
+	 * removed.
+	 */
+	@Benchmark
+	public void restoreNodes(ReducedMatrix reduced) {
+		// the initial matrix has the state id 0
+		reduced.matrix.restoreNodes(0);
+	}
+
+	/**
+	 * Rebuilds the initial matrix after the givens of a single puzzle have
+	 * been removed like it is done by a pool for a released matrix.
+	 */
+	@Benchmark
+	public void reset(ReducedMatrix reduced) {
+		reduced.matrix.reset();
+	}
+
+	/**
+	 * Copies a matrix with removed rows like it is done to search the
+	 * branches of a matrix in parallel.
+	 */
+	@Benchmark
+	public XorMatrix copy(PropagatedMatrix propagated) {
+		return propagated.matrix.copy();
+	}
+
+}
@@ -0,0 +1,79 @@
+package de.helwich.sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.helwich.sudoku.solve.SudokuCover;
+import de.helwich.sudoku.solve.XorMatrix;
+import de.helwich.sudoku.solve.XorMatrixFactory;
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
+
+/**
+ * Measures the construction of the exact cover matrix of an empty grid with
+ * a {@link XorMatrixFactory}.
+ * The target is a build of the 729x324 matrix of a 9x9 grid in a few
+ * microseconds. The measured bulk build takes about 46 us with
+ * {@link Backing#NODES} and 28 to 29 us with {@link Backing#ARRAYS} and
+ * {@link Backing#BITSETS}. So the target is not reached, because the
+ * nodes and the row form of the matrix have to be allocated and filled.
+ *
+ * @author Hendrik Helwich
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XorMatrixFactoryBenchmark {
+
+	@Param({ "2x2", "2x3", "3x3", "4x4" })
+	public String grid;
+
+	@Param({ "NODES", "ARRAYS", "BITSETS" })
+	public Backing backing;
+
+	private int[] offsets;
+	private int[] rows;
+	private int[][] columns;
+
+	@Setup
+	public void setUp() {
+		int boxHeight = Puzzles.getBoxHeight(grid);
+		int boxWidth = Puzzles.getBoxWidth(grid);
+		offsets = SudokuCover.getColumnOffsets(boxHeight, boxWidth);
+		rows = SudokuCover.getColumnRows(boxHeight, boxWidth);
+		columns = new int[offsets.length - 1][];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = new int[offsets[i + 1] - offsets[i]];
+			System.arraycopy(rows, offsets[i], columns[i], 0, columns[i].length);
+		}
+	}
+
+	@Benchmark
+	public XorMatrix buildByColumn() {
+		XorMatrixFactory factory = new XorMatrixFactory();
+		for (int[] column : columns)
+			factory.addXorColumn(column);
+		return factory.createXorMatrix(backing);
+	}
+
+	@Benchmark
+	public XorMatrix buildInBulk() {
+		XorMatrixFactory factory = new XorMatrixFactory();
+		factory.addXorColumns(offsets, rows);
+		return factory.createXorMatrix(backing);
+	}
+
+}
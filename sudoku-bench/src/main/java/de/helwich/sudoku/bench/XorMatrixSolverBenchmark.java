@@ -0,0 +1,81 @@
+package de.helwich.sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.helwich.sudoku.solve.SudokuCover;
+import de.helwich.sudoku.solve.XorMatrix;
+import de.helwich.sudoku.solve.XorMatrixSolver;
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
+
+/**
+ * Measures the search of all solutions of each 9x9 puzzle of the corpus by a
+ * {@link XorMatrixSolver}. The time of an operation is the time for the whole
+ * corpus.
+ * The inclusion size and the statistics are parameters, so the search nodes
+ * which are saved by a larger inclusion size and the cost of the statistics
+ * can be compared with the time.
+ *
+ * @author Hendrik Helwich
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XorMatrixSolverBenchmark {
+
+	@Param({ "NODES", "ARRAYS", "BITSETS" })
+	public Backing backing;
+
+	@Param({ "1", "2", "3" })
+	public int maxInclusionSize;
+
+	@Param({ "false", "true" })
+	public boolean statisticsEnabled;
+
+	private XorMatrix matrix;
+	private XorMatrixSolver solver;
+	/** the rows of the givens of each puzzle */
+	private int[][] givenRows;
+
+	@Setup
+	public void setUp() {
+		matrix = SudokuCover.createXorMatrix(backing);
+		matrix.setMaxInclusionSize(maxInclusionSize);
+		matrix.setStatisticsEnabled(statisticsEnabled);
+		solver = new XorMatrixSolver(matrix);
+		givenRows = new int[SudokuCover.PUZZLES.length][];
+		for (int i = 0; i < givenRows.length; i++)
+			givenRows[i] = SudokuCover.getGivenRows(SudokuCover.PUZZLES[i], 9);
+	}
+
+	/**
+	 * Counts the solutions of each puzzle and consumes the number of search
+	 * nodes.
+	 */
+	@Benchmark
+	public void countSolutions(Blackhole blackhole) {
+		for (int[] rows : givenRows) {
+			int mark = matrix.checkpoint();
+			matrix.removeRows(rows);
+			blackhole.consume(solver.countSolutions());
+			blackhole.consume(solver.getNodeCount());
+			matrix.rollback(mark);
+		}
+	}
+
+}
@@ -0,0 +1,247 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * An {@link XorMatrix} which stores its elements in parallel
+ * <code>int</code> arrays instead of {@link MatrixNode} objects.
+ * A matrix element is identified by its index in these arrays. The arrays
+ * {@link #left}, {@link #right}, {@link #up} and {@link #down} hold the
+ * indices of the adjacent elements and have the same meaning as the
+ * corresponding fields of the class {@link MatrixNode}.
+ *
+ * @author Hendrik Helwich
+ */
+class ArrayXorMatrix extends XorMatrix {
+
+	/** adjacent element indices */
+	private final int[] left, right, up, down;
+	/** index of the first element in each row or -1 if the row is removed */
+	private final int[] firstRowNodes;
+	/** index of the first element in each column */
+	private final int[] firstColumnNodes;
+	/** header records: number of not removed elements in each row/column */
+	private final int[] rowWidths, columnHeights;
+	/** undo trail: the removed nodes in the order of their removal */
+	private final IntStack removedNodes;
+	/**
+	 * the arrays of the initial matrix which are restored by a reset; they
+	 * are shared by the copies of a matrix
+	 */
+	private final int[] initialLeft, initialRight, initialUp, initialDown,
+			initialFirstRowNodes;
+
+	/**
+	 * Must only be called by {@link XorMatrixFactory}.
+	 * The adjacent element arrays must describe a valid matrix in which each
+	 * row and column is a circular list like it is done for {@link MatrixNode}
+	 * instances.
+	 */
+	ArrayXorMatrix(int[] left, int[] right, int[] up, int[] down,
+			int[] firstRowNodes, int[] firstColumnNodes, int[] columnOffsets,
+			int[] columnRows) {
+		super(firstRowNodes.length, columnOffsets, columnRows);
+		for (int r = 0; r < firstRowNodes.length; r++)
+			if (firstRowNodes[r] != -1)
+				setRowLive(r, true);
+		this.left = left;
+		this.right = right;
+		this.up = up;
+		this.down = down;
+		this.firstRowNodes = firstRowNodes;
+		this.firstColumnNodes = firstColumnNodes;
+		removedNodes = new IntStack(columnRows.length);
+		rowWidths = new int[firstRowNodes.length];
+		columnHeights = new int[firstColumnNodes.length];
+		for (int node = 0; node < columnRows.length; node++) {
+			rowWidths[columnRows[node]]++;
+			columnHeights[nodeColumns[node]]++;
+		}
+		initialLeft = copy(left);
+		initialRight = copy(right);
+		initialUp = copy(up);
+		initialDown = copy(down);
+		initialFirstRowNodes = copy(firstRowNodes);
+	}
+
+	/**
+	 * Creates a deep copy of the given matrix. The immutable arrays are
+	 * shared.
+	 */
+	private ArrayXorMatrix(ArrayXorMatrix matrix) {
+		super(matrix);
+		left = copy(matrix.left);
+		right = copy(matrix.right);
+		up = copy(matrix.up);
+		down = copy(matrix.down);
+		firstRowNodes = copy(matrix.firstRowNodes);
+		firstColumnNodes = matrix.firstColumnNodes;
+		rowWidths = copy(matrix.rowWidths);
+		columnHeights = copy(matrix.columnHeights);
+		removedNodes = new IntStack(matrix.removedNodes);
+		initialLeft = matrix.initialLeft;
+		initialRight = matrix.initialRight;
+		initialUp = matrix.initialUp;
+		initialDown = matrix.initialDown;
+		initialFirstRowNodes = matrix.initialFirstRowNodes;
+	}
+
+	private static int[] copy(int[] array) {
+		int[] copy = new int[array.length];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+
+	@Override
+	public XorMatrix copy() {
+		return new ArrayXorMatrix(this);
+	}
+
+	@Override
+	public int getColumnHeight(int column) {
+		return columnHeights[column];
+	}
+
+	@Override
+	public int getRowWidth(int row) {
+		return rowWidths[row];
+	}
+
+	@Override
+	boolean isLive(int node) {
+		// a single node is not unlinked, so it is live if its row is live
+		return firstRowNodes[columnRows[node]] != -1 && !isRemoved(node);
+	}
+
+	@Override
+	void removeNode(int node) {
+		// a single node can not be unlinked, but it is stored anyway if its
+		// row is removed now to be able to restore the row
+		if (unlink(node) || isSingle(node) && firstRowNodes[columnRows[node]] == node) {
+			removedNodes.push(node);
+			rowWidths[columnRows[node]]--;
+			columnHeights[nodeColumns[node]]--;
+		}
+		// if node is a single node we do not know if it is removed before
+		// if node is an element of first column array => adapt array
+		int r = columnRows[node];
+		if (firstRowNodes[r] == node)
+			if (right[node] == node) { // single node in the row
+				firstRowNodes[r] = -1;
+				removeLiveRow(r);
+			} else
+				firstRowNodes[r] = right[node];
+	}
+
+	/**
+	 * @return <code>true</code> if the node was removed from the matrix.
+	 * @see    MatrixNode#remove()
+	 */
+	private boolean unlink(int node) {
+		if (isSingle(node) || isRemoved(node))
+			return false;
+		right[left[node]] = right[node];
+		left[right[node]] = left[node];
+		down[up[node]] = down[node];
+		up[down[node]] = up[node];
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if the node was reinserted in the matrix.
+	 * @see    MatrixNode#reInsert()
+	 */
+	private boolean relink(int node) {
+		if (!isRemoved(node))
+			return false;
+		right[left[node]] = node;
+		left[right[node]] = node;
+		down[up[node]] = node;
+		up[down[node]] = node;
+		return true;
+	}
+
+	/**
+	 * @see MatrixNode#isRemoved()
+	 */
+	private boolean isRemoved(int node) {
+		return right[left[node]] != node || down[up[node]] != node;
+	}
+
+	/**
+	 * @see MatrixNode#isSingle()
+	 */
+	private boolean isSingle(int node) {
+		return left[node] == node && up[node] == node;
+	}
+
+	@Override
+	int getTrailSize() {
+		return removedNodes.size();
+	}
+
+	@Override
+	void restoreTrail(int trailSize) {
+		// reinsert the removed nodes in reverse order
+		while (removedNodes.size() > trailSize) {
+			// get last removed node
+			int node = removedNodes.pop();
+			// reinsert node in matrix
+			relink(node);
+			int r = columnRows[node];
+			rowWidths[r]++;
+			columnHeights[nodeColumns[node]]++;
+			// the first node of a row is the node with the lowest column
+			int first = firstRowNodes[r];
+			if (first == -1) { // row is restored
+				firstRowNodes[r] = node;
+				setRowLive(r, true);
+			} else if (nodeColumns[node] < nodeColumns[first])
+				firstRowNodes[r] = node;
+		}
+	}
+
+	@Override
+	void resetStorage() {
+		System.arraycopy(initialLeft, 0, left, 0, left.length);
+		System.arraycopy(initialRight, 0, right, 0, right.length);
+		System.arraycopy(initialUp, 0, up, 0, up.length);
+		System.arraycopy(initialDown, 0, down, 0, down.length);
+		System.arraycopy(initialFirstRowNodes, 0, firstRowNodes, 0, firstRowNodes.length);
+		for (int r = 0; r < rowWidths.length; r++)
+			rowWidths[r] = rowOffsets[r + 1] - rowOffsets[r];
+		for (int c = 0; c < columnHeights.length; c++)
+			columnHeights[c] = columnOffsets[c + 1] - columnOffsets[c];
+		removedNodes.clear();
+	}
+
+	@Override
+	int getTrailNode(int position) {
+		return removedNodes.get(position);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		int maxrow = -1;
+		for (int i = 0; i < firstRowNodes.length; i++)
+			if (firstRowNodes[i] != -1)
+				maxrow = i;
+		for (int i = 0; i <= maxrow; i++) {
+			sb.append(i).append("  |");
+			int first = firstRowNodes[i];
+			if (first != -1) {
+				int col = 0;
+				int node = first;
+				do {
+					for (; col < nodeColumns[node]; col++)
+						sb.append("  ");
+					sb.append(" X");
+					col++;
+					node = right[node];
+				} while (node != first);
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+}
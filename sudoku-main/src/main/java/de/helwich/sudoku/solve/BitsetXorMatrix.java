@@ -0,0 +1,211 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * An {@link XorMatrix} which stores the live elements of each row as a bitset
+ * of its columns and the live elements of each column as a bitset of its
+ * rows. The columns which contain all live rows of a column are found by
+ * intersecting the bitsets of these rows, which needs a few word operations
+ * per row instead of walking the rows element by element. This is fast for
+ * matrices with up to a few hundred columns, but the bitsets need memory
+ * proportional to the number of rows times the number of columns.
+ * A matrix element is identified by its index in the array
+ * {@link #columnRows} like it is done by the other storage implementations,
+ * so the undo trail can be replayed by each of them.
+ *
+ * @author Hendrik Helwich
+ */
+class BitsetXorMatrix extends XorMatrix {
+
+	/** number of words of a row/column bitset */
+	private final int columnWords, rowWords;
+	/**
+	 * the live columns of each row: the bitset of row <code>r</code> starts at
+	 * index <code>r * columnWords</code>
+	 */
+	private final long[] rowBits;
+	/**
+	 * the live rows of each column: the bitset of column <code>c</code>
+	 * starts at index <code>c * rowWords</code>
+	 */
+	private final long[] columnBits;
+	/**
+	 * the bitsets of the initial matrix which are restored by a reset; they
+	 * are shared by the copies of a matrix
+	 */
+	private final long[] initialRowBits, initialColumnBits;
+	/** header records: number of not removed elements in each row/column */
+	private final int[] rowWidths, columnHeights;
+	/** undo trail: the removed nodes in the order of their removal */
+	private final IntStack removedNodes;
+
+	/** scratch storage: the columns which contain all rows of columnLiveRows */
+	private final long[] complete;
+
+	/**
+	 * Must only be called by {@link XorMatrixFactory}.
+	 *
+	 * @param  rowCount
+	 *         the highest row index plus one
+	 * @param  columnOffsets
+	 * @param  columnRows
+	 */
+	BitsetXorMatrix(int rowCount, int[] columnOffsets, int[] columnRows) {
+		super(rowCount, columnOffsets, columnRows);
+		int columnCount = columnOffsets.length - 1;
+		columnWords = (columnCount + 63) >>> 6;
+		rowWords = (rowCount + 63) >>> 6;
+		initialRowBits = new long[rowCount * columnWords];
+		initialColumnBits = new long[columnCount * rowWords];
+		for (int c = 0; c < columnCount; c++)
+			for (int node = columnOffsets[c]; node < columnOffsets[c + 1]; node++) {
+				int r = columnRows[node];
+				initialRowBits[r * columnWords + (c >>> 6)] |= 1L << c;
+				initialColumnBits[c * rowWords + (r >>> 6)] |= 1L << r;
+			}
+		rowBits = new long[initialRowBits.length];
+		columnBits = new long[initialColumnBits.length];
+		rowWidths = new int[rowCount];
+		columnHeights = new int[columnCount];
+		removedNodes = new IntStack(columnRows.length);
+		complete = new long[columnWords];
+		resetStorage();
+		for (int r = 0; r < rowCount; r++)
+			if (rowWidths[r] > 0)
+				setRowLive(r, true);
+	}
+
+	/**
+	 * Creates a deep copy of the given matrix. The immutable arrays are
+	 * shared.
+	 */
+	private BitsetXorMatrix(BitsetXorMatrix matrix) {
+		super(matrix);
+		columnWords = matrix.columnWords;
+		rowWords = matrix.rowWords;
+		rowBits = matrix.rowBits.clone();
+		columnBits = matrix.columnBits.clone();
+		initialRowBits = matrix.initialRowBits;
+		initialColumnBits = matrix.initialColumnBits;
+		rowWidths = matrix.rowWidths.clone();
+		columnHeights = matrix.columnHeights.clone();
+		removedNodes = new IntStack(matrix.removedNodes);
+		complete = new long[columnWords];
+	}
+
+	@Override
+	public XorMatrix copy() {
+		return new BitsetXorMatrix(this);
+	}
+
+	@Override
+	public int getColumnHeight(int column) {
+		return columnHeights[column];
+	}
+
+	@Override
+	public int getRowWidth(int row) {
+		return rowWidths[row];
+	}
+
+	private boolean isLive(int row, int column) {
+		return (rowBits[row * columnWords + (column >>> 6)] & (1L << column)) != 0;
+	}
+
+	@Override
+	boolean isLive(int node) {
+		return isLive(columnRows[node], nodeColumns[node]);
+	}
+
+	@Override
+	void removeNode(int node) {
+		int r = columnRows[node];
+		int c = nodeColumns[node];
+		if (!isLive(r, c))
+			return; // removed before
+		rowBits[r * columnWords + (c >>> 6)] &= ~(1L << c);
+		columnBits[c * rowWords + (r >>> 6)] &= ~(1L << r);
+		removedNodes.push(node);
+		columnHeights[c]--;
+		if (--rowWidths[r] == 0)
+			removeLiveRow(r);
+	}
+
+	/**
+	 * Intersects the live columns of the rows of the list columnLiveRows
+	 * which needs a few word operations per row.
+	 */
+	@Override
+	void findCompleteColumns(int column) {
+		int rowOffset = columnLiveRows.get(0) * columnWords;
+		System.arraycopy(rowBits, rowOffset, complete, 0, columnWords);
+		for (int j = 1; j < columnLiveRows.size(); j++) {
+			rowOffset = columnLiveRows.get(j) * columnWords;
+			for (int i = 0; i < columnWords; i++)
+				complete[i] &= rowBits[rowOffset + i];
+		}
+		// the column of the removed node is contained in all rows
+		complete[column >>> 6] &= ~(1L << column);
+		for (int w = 0; w < columnWords; w++)
+			for (long word = complete[w]; word != 0; word &= word - 1)
+				completeColumns.push((w << 6) + Long.numberOfTrailingZeros(word));
+	}
+
+	@Override
+	int getTrailSize() {
+		return removedNodes.size();
+	}
+
+	@Override
+	void restoreTrail(int trailSize) {
+		// reinsert the removed nodes in reverse order
+		while (removedNodes.size() > trailSize) {
+			int node = removedNodes.pop();
+			int r = columnRows[node];
+			int c = nodeColumns[node];
+			rowBits[r * columnWords + (c >>> 6)] |= 1L << c;
+			columnBits[c * rowWords + (r >>> 6)] |= 1L << r;
+			columnHeights[c]++;
+			if (rowWidths[r]++ == 0) // row is restored
+				setRowLive(r, true);
+		}
+	}
+
+	@Override
+	void resetStorage() {
+		System.arraycopy(initialRowBits, 0, rowBits, 0, rowBits.length);
+		System.arraycopy(initialColumnBits, 0, columnBits, 0, columnBits.length);
+		for (int r = 0; r < rowWidths.length; r++)
+			rowWidths[r] = rowOffsets[r + 1] - rowOffsets[r];
+		for (int c = 0; c < columnHeights.length; c++)
+			columnHeights[c] = columnOffsets[c + 1] - columnOffsets[c];
+		removedNodes.clear();
+	}
+
+	@Override
+	int getTrailNode(int position) {
+		return removedNodes.get(position);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		int maxrow = -1;
+		for (int i = 0; i < rowWidths.length; i++)
+			if (rowWidths[i] > 0)
+				maxrow = i;
+		for (int i = 0; i <= maxrow; i++) {
+			sb.append(i).append("  |");
+			int col = 0;
+			for (int j = rowOffsets[i]; j < rowOffsets[i + 1]; j++)
+				if (isLive(i, rowColumns[j])) {
+					for (; col < rowColumns[j]; col++)
+						sb.append("  ");
+					sb.append(" X");
+					col++;
+				}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,321 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * Finds rows of an {@link XorMatrix} which can not be part of a solution
+ * because of the rows which are left in a column. The rules are applied to
+ * the initial structure of the matrix and its live rows, so they do not
+ * depend on how the matrix is stored:
+ * <ul>
+ * <li>A row which shares a column with each live row of a column <i>A</i>
+ * can not be part of a solution, because one of the rows of <i>A</i> is part
+ * of each solution. This includes the case that each row of <i>A</i> is also
+ * in a column <i>B</i>: all other rows of <i>B</i> can be removed.</li>
+ * <li>If the live rows of <i>k</i> columns <i>A<sub>1</sub>, ...,
+ * A<sub>k</sub></i> which do not share a row and have at most <i>k</i> live
+ * rows each are all in the <i>k</i> columns
+ * <i>B<sub>1</sub>, ..., B<sub>k</sub></i>, each column <i>B<sub>i</sub></i>
+ * is covered by a row of a column <i>A<sub>j</sub></i>. All other rows of the
+ * columns <i>B<sub>i</sub></i> can be removed. This is checked for pairs
+ * and triples of columns.</li>
+ * </ul>
+ * The columns which have lost a row are collected and the rules are checked
+ * for each of them once all other removable rows are removed. Larger sets of
+ * columns find more rows but need more time.
+ *
+ * @author Hendrik Helwich
+ */
+class ColumnInclusion {
+
+	/** the maximum number of columns which can be combined */
+	static final int MAX_SIZE = 3;
+
+	private final XorMatrix matrix;
+	private int maxSize;
+	/** the columns which have lost a row since they have been checked */
+	private final IntStack changedColumns = new IntStack(64);
+	private final boolean[] changed;
+
+	// reusable scratch storage of the operation deduce
+	/** the live rows of the checked column A */
+	private final IntStack aRows = new IntStack(16);
+	private final IntMarks inA, inB, candidateColumns, inCandidate;
+	/** per row: the number of rows of A with which the row shares a column */
+	private final int[] conflicts;
+	/** rows which share a column with the first row of A */
+	private final IntStack conflictRows = new IntStack(64);
+	/** the columns B which cover the rows of A */
+	private final IntStack bColumns = new IntStack(MAX_SIZE);
+	/** columns which can be combined with A and their number of live rows */
+	private final IntStack candidates = new IntStack(16),
+			candidateHeights = new IntStack(16);
+
+	ColumnInclusion(XorMatrix matrix, int maxSize) {
+		this.matrix = matrix;
+		this.maxSize = maxSize;
+		int rowCount = matrix.getRowCount();
+		inA = new IntMarks(rowCount);
+		inB = new IntMarks(rowCount);
+		inCandidate = new IntMarks(rowCount);
+		candidateColumns = new IntMarks(matrix.getColumnCount());
+		conflicts = new int[rowCount];
+		changed = new boolean[matrix.getColumnCount()];
+	}
+
+	int getMaxSize() {
+		return maxSize;
+	}
+
+	void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Marks the given column to be checked because it has lost a row.
+	 */
+	void addChangedColumn(int column) {
+		if (!changed[column]) {
+			changed[column] = true;
+			changedColumns.push(column);
+		}
+	}
+
+	/**
+	 * Checks the changed columns till a removable row is found.
+	 *
+	 * @return <code>false</code> if all changed columns are checked without
+	 *         finding a removable row
+	 */
+	boolean deduce(RowQueue queue) {
+		while (!changedColumns.isEmpty()) {
+			int column = changedColumns.pop();
+			changed[column] = false;
+			deduce(column, queue);
+			if (!queue.isEmpty())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the rows to the given queue which can be removed because of the
+	 * live rows of the given column.
+	 */
+	private void deduce(int a, RowQueue queue) {
+		aRows.clear();
+		inA.clear();
+		for (int i = matrix.columnOffsets[a]; i < matrix.columnOffsets[a + 1]; i++) {
+			int row = matrix.columnRows[i];
+			if (matrix.containsRow(row)) {
+				aRows.push(row);
+				inA.mark(row);
+			}
+		}
+		if (aRows.isEmpty())
+			return;
+		deduceConflicts(a, queue);
+		if (aRows.size() > 1 && aRows.size() <= maxSize)
+			selectCovers(a, queue);
+	}
+
+	/**
+	 * Adds the rows which share a column with each live row of column A.
+	 */
+	private void deduceConflicts(int a, RowQueue queue) {
+		int height = aRows.size();
+		conflictRows.clear();
+		// number of rows which share a column with all rows of A before
+		int count = 1;
+		for (int i = 0; i < height && count > 0; i++) {
+			count = 0;
+			int aRow = aRows.get(i);
+			for (int j = matrix.rowOffsets[aRow]; j < matrix.rowOffsets[aRow + 1]; j++) {
+				int column = matrix.rowColumns[j];
+				if (column == a)
+					continue;
+				for (int k = matrix.columnOffsets[column]; k < matrix.columnOffsets[column + 1]; k++) {
+					int row = matrix.columnRows[k];
+					// count each row of A once and only if all rows of A
+					// before are counted
+					if (conflicts[row] == i && !inA.isMarked(row)
+							&& matrix.containsRow(row)) {
+						conflicts[row] = i + 1;
+						count++;
+						if (i == 0)
+							conflictRows.push(row);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < conflictRows.size(); i++) {
+			int row = conflictRows.get(i);
+			if (conflicts[row] == height && queue.add(row)
+					&& matrix.counters != null)
+				matrix.counters.conflictRows++;
+			conflicts[row] = 0;
+		}
+	}
+
+	/**
+	 * Chooses columns B which cover the first row of column A which is not
+	 * covered by the columns which are already chosen.
+	 */
+	private void selectCovers(int a, RowQueue queue) {
+		int uncovered = -1;
+		for (int i = 0; i < aRows.size(); i++)
+			if (!isCovered(aRows.get(i))) {
+				uncovered = aRows.get(i);
+				break;
+			}
+		if (uncovered == -1) {
+			// a single column B is handled by the operation deduceConflicts
+			if (bColumns.size() > 1)
+				deduceSubsets(a, queue);
+		} else if (bColumns.size() < maxSize)
+			for (int i = matrix.rowOffsets[uncovered]; i < matrix.rowOffsets[uncovered + 1]; i++) {
+				int column = matrix.rowColumns[i];
+				if (column != a) {
+					bColumns.push(column);
+					selectCovers(a, queue);
+					bColumns.pop();
+				}
+			}
+	}
+
+	private boolean isCovered(int row) {
+		for (int i = matrix.rowOffsets[row]; i < matrix.rowOffsets[row + 1]; i++)
+			if (isB(matrix.rowColumns[i]))
+				return true;
+		return false;
+	}
+
+	private boolean isB(int column) {
+		for (int i = 0; i < bColumns.size(); i++)
+			if (bColumns.get(i) == column)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Searches columns which can be combined with column A because their live
+	 * rows are in the chosen columns B and are not in A or in each other.
+	 */
+	private void deduceSubsets(int a, RowQueue queue) {
+		// number of live rows in B which are not in A
+		int free = -aRows.size();
+		inB.clear();
+		for (int i = 0; i < bColumns.size(); i++) {
+			int b = bColumns.get(i);
+			for (int j = matrix.columnOffsets[b]; j < matrix.columnOffsets[b + 1]; j++) {
+				int row = matrix.columnRows[j];
+				if (!inB.isMarked(row) && matrix.containsRow(row)) {
+					inB.mark(row);
+					free++;
+				}
+			}
+		}
+		if (free == 0)
+			return; // no row can be removed
+		// collect the columns which have only live rows in B and not in A.
+		// A column which has only rows in one column B is covered by the
+		// first rule, so each combined column has a row in the first column B
+		// if two columns are combined
+		candidates.clear();
+		candidateHeights.clear();
+		candidateColumns.clear();
+		int searched = bColumns.size() == 2 ? 1 : bColumns.size();
+		for (int i = 0; i < searched; i++) {
+			int b = bColumns.get(i);
+			for (int j = matrix.columnOffsets[b]; j < matrix.columnOffsets[b + 1]; j++) {
+				int row = matrix.columnRows[j];
+				if (inA.isMarked(row) || !matrix.containsRow(row))
+					continue;
+				for (int k = matrix.rowOffsets[row]; k < matrix.rowOffsets[row + 1]; k++) {
+					int column = matrix.rowColumns[k];
+					if (!candidateColumns.isMarked(column) && !isB(column)) {
+						candidateColumns.mark(column);
+						int height = getCandidateHeight(column);
+						if (height > 0) {
+							candidates.push(column);
+							candidateHeights.push(height);
+						}
+					}
+				}
+			}
+		}
+		// the combined columns must leave a row of B which can be removed
+		if (bColumns.size() == 2) {
+			for (int i = 0; i < candidates.size(); i++)
+				if (candidateHeights.get(i) < free) {
+					inCandidate.clear();
+					markRows(candidates.get(i));
+					removeUncovered(queue);
+				}
+		} else // three columns
+			for (int i = 0; i < candidates.size(); i++)
+				for (int j = i + 1; j < candidates.size(); j++)
+					if (candidateHeights.get(i) + candidateHeights.get(j) < free) {
+						inCandidate.clear();
+						markRows(candidates.get(i));
+						if (markRows(candidates.get(j)))
+							removeUncovered(queue);
+					}
+	}
+
+	/**
+	 * Returns the number of live rows of the given column if they are all in
+	 * B and not in A and if there are not more rows than columns B. Returns
+	 * -1 otherwise.
+	 */
+	private int getCandidateHeight(int column) {
+		int height = 0;
+		for (int i = matrix.columnOffsets[column]; i < matrix.columnOffsets[column + 1]; i++) {
+			int row = matrix.columnRows[i];
+			if (matrix.containsRow(row)) {
+				if (inA.isMarked(row) || !inB.isMarked(row)
+						|| ++height > bColumns.size())
+					return -1;
+			}
+		}
+		return height;
+	}
+
+	/**
+	 * Marks the live rows of the given column as rows of the combined
+	 * columns.
+	 *
+	 * @return <code>false</code> if a row is marked before
+	 */
+	private boolean markRows(int column) {
+		for (int i = matrix.columnOffsets[column]; i < matrix.columnOffsets[column + 1]; i++) {
+			int row = matrix.columnRows[i];
+			if (matrix.containsRow(row)) {
+				if (inCandidate.isMarked(row))
+					return false;
+				inCandidate.mark(row);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the live rows of the columns B which are not in column A or in the
+	 * combined columns.
+	 */
+	private void removeUncovered(RowQueue queue) {
+		for (int i = 0; i < bColumns.size(); i++) {
+			int b = bColumns.get(i);
+			for (int j = matrix.columnOffsets[b]; j < matrix.columnOffsets[b + 1]; j++) {
+				int row = matrix.columnRows[j];
+				if (!inA.isMarked(row) && !inCandidate.isMarked(row)
+						&& matrix.containsRow(row) && queue.add(row)
+						&& matrix.counters != null) {
+					if (bColumns.size() == 2)
+						matrix.counters.pairRows++;
+					else
+						matrix.counters.tripleRows++;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * A set of <code>int</code> values in the range <code>[0, size)</code> which
+ * can be cleared in constant time. Each value is marked with the current
+ * stamp and clearing the set increments the stamp.
+ *
+ * @author Hendrik Helwich
+ */
+class IntMarks {
+
+	private final int[] marks;
+	private int stamp;
+
+	IntMarks(int size) {
+		marks = new int[size];
+		stamp = 1;
+	}
+
+	void clear() {
+		if (++stamp == 0) { // overflow => reset all marks
+			for (int i = 0; i < marks.length; i++)
+				marks[i] = 0;
+			stamp = 1;
+		}
+	}
+
+	void mark(int value) {
+		marks[value] = stamp;
+	}
+
+	boolean isMarked(int value) {
+		return marks[value] == stamp;
+	}
+
+}
@@ -0,0 +1,72 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * A growable stack of primitive <code>int</code> values which can be reused
+ * without creating new objects once it has reached its maximum size.
+ *
+ * @author Hendrik Helwich
+ */
+class IntStack {
+
+	private int[] values;
+	private int size;
+
+	IntStack(int initialCapacity) {
+		values = new int[Math.max(initialCapacity, 4)];
+	}
+
+	/**
+	 * Creates a copy of the given stack.
+	 */
+	IntStack(IntStack stack) {
+		this(stack.size);
+		System.arraycopy(stack.values, 0, values, 0, stack.size);
+		size = stack.size;
+	}
+
+	void push(int value) {
+		if (size == values.length) {
+			int[] tmp = new int[size * 2];
+			System.arraycopy(values, 0, tmp, 0, size);
+			values = tmp;
+		}
+		values[size++] = value;
+	}
+
+	int pop() {
+		return values[--size];
+	}
+
+	int peek() {
+		return values[size - 1];
+	}
+
+	int get(int index) {
+		return values[index];
+	}
+
+	void set(int index, int value) {
+		values[index] = value;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Removes all values above the given size from the stack.
+	 */
+	void truncate(int size) {
+		if (size < this.size)
+			this.size = size;
+	}
+
+}
@@ -27,6 +27,12 @@ public class MatrixNode {
 	 * Immutable matrix position
 	 */
 	public final int row, column;
+
+	/**
+	 * Index of the node in the matrix which is used to copy the matrix or
+	 * <code>-1</code> if the node is not part of a matrix
+	 */
+	final int index;
 	
 	/**
 	 * Initializes the immutable position of the matrix node.
@@ -38,8 +44,13 @@ public class MatrixNode {
 	 * @param  column
 	 */
 	public MatrixNode(int row, int column) {
+		this(row, column, -1);
+	}
+
+	MatrixNode(int row, int column, int index) {
 		this.row = row;
 		this.column = column;
+		this.index = index;
 	}
 	
 	/**
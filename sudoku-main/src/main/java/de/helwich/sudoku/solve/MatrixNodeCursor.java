@@ -0,0 +1,141 @@
+package de.helwich.sudoku.solve;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A reusable cursor which visits the nodes of a row or a column of
+ * {@link MatrixNode}s in one direction. The cursor is its own iterator, so it
+ * can be used in a for-each loop without creating objects:
+ *
+ * <pre>
+ * MatrixNodeCursor cursor = new MatrixNodeCursor();
+ * for (MatrixNode node : cursor.reset(first, Direction.RIGHT))
+ *     ...
+ * </pre>
+ *
+ * The nodes of the circular list which contains the start node are visited
+ * once beginning with the start node. The list must not be changed while the
+ * cursor is used.
+ * If removed nodes are skipped, the start node may be a removed node. Then
+ * the cursor follows the adjacent pointers of the removed nodes till it
+ * reaches a node which is not removed and visits the list of this node. The
+ * adjacent pointers of a removed node still point to the nodes which have
+ * been its neighbours when it was removed, so this is the list from which
+ * the start node has been removed.
+ * Only the start node is checked: the other nodes of the list are visited
+ * even if they are removed. This is correct if the nodes are only removed by
+ * {@link MatrixNode#remove()} because it unlinks a node from its lists, so
+ * the list of a node which is not removed contains no removed node.
+ *
+ * @author Hendrik Helwich
+ */
+public class MatrixNodeCursor implements Iterable<MatrixNode>, Iterator<MatrixNode> {
+
+	/**
+	 * The adjacent pointer of {@link MatrixNode} which is followed by the
+	 * cursor.
+	 */
+	public enum Direction {
+		/** backward in the row */
+		LEFT,
+		/** forward in the row */
+		RIGHT,
+		/** backward in the column */
+		UP,
+		/** forward in the column */
+		DOWN
+	}
+
+	private Direction direction;
+	/** the first visited node */
+	private MatrixNode first;
+	/** the next visited node or <code>null</code> if all nodes are visited */
+	private MatrixNode next;
+
+	/**
+	 * Starts a new traversal which visits all nodes of the list of the given
+	 * node.
+	 *
+	 * @param  start
+	 *         the first visited node which must not be removed
+	 * @param  direction
+	 * @return this cursor
+	 */
+	public MatrixNodeCursor reset(MatrixNode start, Direction direction) {
+		this.direction = direction;
+		first = next = start;
+		return this;
+	}
+
+	/**
+	 * Starts a new traversal.
+	 *
+	 * @param  start
+	 *         the first visited node if it is not removed
+	 * @param  direction
+	 * @param  skipRemoved
+	 *         <code>true</code> if the start node may be removed; then the
+	 *         traversal starts at the first node in the given direction
+	 *         which is not removed. The nodes after this node are not
+	 *         checked.
+	 * @return this cursor
+	 */
+	public MatrixNodeCursor reset(MatrixNode start, Direction direction,
+			boolean skipRemoved) {
+		reset(start, direction);
+		if (skipRemoved)
+			while (first.isRemoved()) {
+				MatrixNode node = step(first);
+				if (node == first || node == start) { // no node is left
+					first = next = null;
+					break;
+				}
+				first = next = node;
+			}
+		return this;
+	}
+
+	private MatrixNode step(MatrixNode node) {
+		switch (direction) {
+		case LEFT:
+			return node.left;
+		case RIGHT:
+			return node.right;
+		case UP:
+			return node.up;
+		default:
+			return node.down;
+		}
+	}
+
+	/**
+	 * Returns this cursor.
+	 */
+	@Override
+	public Iterator<MatrixNode> iterator() {
+		return this;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return next != null;
+	}
+
+	@Override
+	public MatrixNode next() {
+		MatrixNode node = next;
+		if (node == null)
+			throw new NoSuchElementException();
+		next = step(node);
+		if (next == first)
+			next = null;
+		return node;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+}
@@ -1,8 +1,16 @@
 package de.helwich.sudoku.solve;
 
 import java.util.Iterator;
-import java.util.NoSuchElementException;
 
+import de.helwich.sudoku.solve.MatrixNodeCursor.Direction;
+
+/**
+ * Iterates over the nodes of a row beginning with a start node.
+ *
+ * @deprecated Use a {@link MatrixNodeCursor} which can be reused for each
+ *             traversal instead of creating a new iterator.
+ */
+@Deprecated
 public class MatrixNodeRowIterable implements Iterable<MatrixNode> {
 	
 	private final MatrixNode startNode;
@@ -13,34 +21,7 @@ public class MatrixNodeRowIterable implements Iterable<MatrixNode> {
 
 	@Override
 	public Iterator<MatrixNode> iterator() {
-		return new Iterator<MatrixNode>() {
-			
-			private MatrixNode current = startNode;
-			
-			@Override
-			public void remove() {
-				throw new UnsupportedOperationException();
-			}
-			
-			@Override
-			public MatrixNode next() {
-				try {
-					return current;
-				} finally {
-					if (current == null)
-						throw new NoSuchElementException();
-					else if (current.right == startNode)
-						current = null;
-					else
-						current = current.right;
-				}
-			}
-			
-			@Override
-			public boolean hasNext() {
-				return current != null;
-			}
-		};
+		return new MatrixNodeCursor().reset(startNode, Direction.RIGHT);
 	}
 	
 }
@@ -0,0 +1,212 @@
+package de.helwich.sudoku.solve;
+
+import de.helwich.sudoku.solve.MatrixNodeCursor.Direction;
+
+/**
+ * An {@link XorMatrix} which stores each matrix element in a separate
+ * {@link MatrixNode} object.
+ * 
+ * @author Hendrik Helwich
+ */
+class NodeXorMatrix extends XorMatrix {
+
+	/** all nodes in the order of their index */
+	private final MatrixNode[] nodes;
+	/** first node of each row or <code>null</code> if the row is removed */
+	private final MatrixNode[] firstRowNodes;
+	/** first node of each column */
+	private final MatrixNode[] firstColumnNodes;
+	/** header records: number of not removed nodes in each row/column */
+	private final int[] rowWidths, columnHeights;
+	/** undo trail: the removed nodes in the order of their removal */
+	private MatrixNode[] removedNodes;
+	private int removedCount;
+
+	private final MatrixNodeCursor cursor = new MatrixNodeCursor();
+	
+	/**
+	 * Must only be called by {@link XorMatrixFactory}.
+	 * 
+	 * @param nodes
+	 *        all nodes; the index of each node must be its array index
+	 * @param firstRowNodes
+	 * @param firstColumnNodes
+	 * @param columnOffsets
+	 * @param columnRows
+	 */
+	NodeXorMatrix(MatrixNode[] nodes, MatrixNode[] firstRowNodes,
+			MatrixNode[] firstColumnNodes, int[] columnOffsets, int[] columnRows) {
+		super(firstRowNodes.length, columnOffsets, columnRows);
+		this.nodes = nodes;
+		for (int row = 0; row < firstRowNodes.length; row++)
+			if (firstRowNodes[row] != null)
+				setRowLive(row, true);
+		this.firstRowNodes = firstRowNodes;
+		this.firstColumnNodes = firstColumnNodes;
+		removedNodes = new MatrixNode[Math.max(16, firstRowNodes.length)];
+		rowWidths = new int[firstRowNodes.length];
+		columnHeights = new int[firstColumnNodes.length];
+		for (MatrixNode first : firstRowNodes)
+			if (first != null)
+				for (MatrixNode node : cursor.reset(first, Direction.RIGHT)) {
+					rowWidths[node.row]++;
+					columnHeights[node.column]++;
+				}
+	}
+	
+	/**
+	 * Creates a deep copy of the given matrix.
+	 */
+	private NodeXorMatrix(NodeXorMatrix matrix) {
+		super(matrix);
+		nodes = new MatrixNode[matrix.nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			MatrixNode node = matrix.nodes[i];
+			nodes[i] = new MatrixNode(node.row, node.column, i);
+		}
+		for (int i = 0; i < nodes.length; i++) {
+			MatrixNode source = matrix.nodes[i];
+			MatrixNode node = nodes[i];
+			node.left = nodes[source.left.index];
+			node.right = nodes[source.right.index];
+			node.up = nodes[source.up.index];
+			node.down = nodes[source.down.index];
+		}
+		firstRowNodes = copy(matrix.firstRowNodes, matrix.firstRowNodes.length);
+		firstColumnNodes = copy(matrix.firstColumnNodes, matrix.firstColumnNodes.length);
+		removedNodes = copy(matrix.removedNodes, matrix.removedCount);
+		removedCount = matrix.removedCount;
+		rowWidths = new int[matrix.rowWidths.length];
+		System.arraycopy(matrix.rowWidths, 0, rowWidths, 0, rowWidths.length);
+		columnHeights = new int[matrix.columnHeights.length];
+		System.arraycopy(matrix.columnHeights, 0, columnHeights, 0, columnHeights.length);
+	}
+
+	/**
+	 * Returns an array with the nodes of this matrix which correspond to the
+	 * first <code>length</code> nodes of the given array of another matrix.
+	 */
+	private MatrixNode[] copy(MatrixNode[] array, int length) {
+		MatrixNode[] copy = new MatrixNode[array.length];
+		for (int i = 0; i < length; i++)
+			if (array[i] != null)
+				copy[i] = nodes[array[i].index];
+		return copy;
+	}
+
+	@Override
+	public XorMatrix copy() {
+		return new NodeXorMatrix(this);
+	}
+
+	@Override
+	public int getColumnHeight(int column) {
+		return columnHeights[column];
+	}
+
+	@Override
+	public int getRowWidth(int row) {
+		return rowWidths[row];
+	}
+
+	@Override
+	boolean isLive(int node) {
+		MatrixNode n = nodes[node];
+		// a single node is not unlinked, so it is live if its row is live
+		return firstRowNodes[n.row] != null && !n.isRemoved();
+	}
+
+	@Override
+	void removeNode(int node) {
+		removeNode(nodes[node]);
+	}
+
+	private void removeNode(MatrixNode node) {
+		// a single node can not be unlinked, but it is stored anyway if its
+		// row is removed now to be able to restore the row
+		if (node.remove() || node.isSingle() && firstRowNodes[node.row] == node) {
+			if (removedCount == removedNodes.length) {
+				MatrixNode[] tmp = new MatrixNode[removedCount * 2];
+				System.arraycopy(removedNodes, 0, tmp, 0, removedCount);
+				removedNodes = tmp;
+			}
+			removedNodes[removedCount++] = node;
+			rowWidths[node.row]--;
+			columnHeights[node.column]--;
+		}
+		// if node is a single node we do not know if it is removed before
+		// if node is an element of first column array => adapt array
+		if (firstRowNodes[node.row] == node)
+			if (node.right == node) { // single node in the row
+				firstRowNodes[node.row] = null;
+				removeLiveRow(node.row);
+			} else
+				firstRowNodes[node.row] = node.right;
+	}
+	
+	@Override
+	int getTrailSize() {
+		return removedCount;
+	}
+
+	@Override
+	void restoreTrail(int trailSize) {
+		// reinsert the removed nodes in reverse order
+		while (removedCount > trailSize) {
+			// get last removed node
+			MatrixNode node = removedNodes[--removedCount];
+			removedNodes[removedCount] = null;
+			// reinsert node in matrix
+			node.reInsert();
+			rowWidths[node.row]++;
+			columnHeights[node.column]++;
+			// the first node of a row is the node with the lowest column
+			MatrixNode first = firstRowNodes[node.row];
+			if (first == null) { // row is restored
+				firstRowNodes[node.row] = node;
+				setRowLive(node.row, true);
+			} else if (node.column < first.column)
+				firstRowNodes[node.row] = node;
+		}
+	}
+
+	@Override
+	void resetStorage() {
+		// the links of the node objects can not be copied in one block, so
+		// they are restored from the trail which is faster than relinking
+		// all nodes
+		restoreTrail(0);
+	}
+
+	@Override
+	int getTrailNode(int position) {
+		return removedNodes[position].index;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		// the cursor of the matrix may be in use, e.g. if a change handler
+		// prints the matrix during a removal
+		MatrixNodeCursor cursor = new MatrixNodeCursor();
+		int maxrow = -1;
+		for (int i = 0; i < firstRowNodes.length; i++)
+			if (firstRowNodes[i] != null)
+				maxrow = i;
+		for (int i = 0; i <= maxrow; i++) {
+			sb.append(i).append("  |");
+			if (firstRowNodes[i] != null) {
+				int column = 0;
+				for (MatrixNode node : cursor.reset(firstRowNodes[i], Direction.RIGHT)) {
+					for (; column < node.column; column++)
+						sb.append("  ");
+					sb.append(" X");
+					column++;
+				}
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+	
+}
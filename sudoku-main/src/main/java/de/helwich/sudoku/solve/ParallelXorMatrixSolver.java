@@ -0,0 +1,165 @@
+package de.helwich.sudoku.solve;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts all solutions of a {@link XorMatrix} with the threads of a
+ * {@link ForkJoinPool}.
+ * Each thread searches on its own copy of the matrix with a
+ * {@link XorMatrixSolver}. A subtree of the search is described by the
+ * decisions on its path which are replayed on the copy. A search node is
+ * split into a task for each branch as long as the current thread has not
+ * enough queued tasks which can be stolen by idle threads. So the first
+ * levels of the search are split and a busy subtree is split again if
+ * threads get idle.
+ * The state of a count is kept by the count, so several threads can count
+ * the solutions with the same instance at the same time. The copies of the
+ * matrix are released when a count is finished.
+ * This class is not part of the GWT module because it depends on
+ * <code>java.util.concurrent</code>.
+ *
+ * @author Hendrik Helwich
+ */
+public class ParallelXorMatrixSolver {
+
+	/** a search node is split if less tasks are queued by the thread */
+	private static final int SURPLUS_TASKS = 3;
+	/** the maximum number of decisions on the path to a split search node */
+	private static final int MAX_SPLIT_DEPTH = 32;
+
+	private final XorMatrix matrix;
+	private final ForkJoinPool pool;
+	/** the number of search nodes of the last finished count */
+	private volatile long nodeCount;
+
+	/**
+	 * Creates a solver which uses the common pool of the virtual machine, so
+	 * it does not create threads.
+	 */
+	public ParallelXorMatrixSolver(XorMatrix matrix) {
+		this(matrix, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a solver which uses the given pool. The pool is owned by the
+	 * caller and is not shut down by the solver.
+	 */
+	public ParallelXorMatrixSolver(XorMatrix matrix, ForkJoinPool pool) {
+		this.matrix = matrix;
+		this.pool = pool;
+	}
+
+	/**
+	 * Counts all solutions of the matrix. The matrix is not changed and must
+	 * not be changed during the count.
+	 *
+	 * @return the number of solutions
+	 */
+	public long countSolutions() {
+		Count count = new Count();
+		long solutions = pool.invoke(new CountTask(count, new int[0]));
+		nodeCount = count.nodeCount.get();
+		return solutions;
+	}
+
+	/**
+	 * Returns the number of search nodes which have been visited by the last
+	 * finished count in all threads.
+	 *
+	 * @return the number of visited search nodes
+	 */
+	public long getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * The state of one call of {@link ParallelXorMatrixSolver#countSolutions()}.
+	 */
+	private class Count {
+
+		/**
+		 * the workers which are not used by a task; a task takes a worker
+		 * while it searches and returns it before it waits for its forked
+		 * tasks, so a worker is created only if all workers are searching
+		 */
+		private final ConcurrentLinkedQueue<Worker> idleWorkers =
+				new ConcurrentLinkedQueue<Worker>();
+		private final AtomicLong nodeCount = new AtomicLong();
+
+		Worker takeWorker() {
+			Worker worker = idleWorkers.poll();
+			return worker != null ? worker : new Worker(this, matrix.copy());
+		}
+
+	}
+
+	/**
+	 * The solver of a copy of the matrix which forks the branches of a split
+	 * search node.
+	 */
+	private class Worker implements XorMatrixSplitHandler {
+
+		private final Count count;
+		private final XorMatrixSolver solver;
+		/** the tasks which are forked by the current task */
+		private List<CountTask> forked;
+
+		Worker(Count count, XorMatrix matrix) {
+			this.count = count;
+			solver = new XorMatrixSolver(matrix);
+		}
+
+		public boolean isSplitting(int depth) {
+			return depth < MAX_SPLIT_DEPTH
+					&& ForkJoinTask.getSurplusQueuedTaskCount() < SURPLUS_TASKS;
+		}
+
+		public void onSplit(int[] path) {
+			CountTask task = new CountTask(count, path);
+			task.fork();
+			forked.add(task);
+		}
+
+	}
+
+	@SuppressWarnings("serial")
+	private class CountTask extends RecursiveTask<Long> {
+
+		private final Count count;
+		private final int[] path;
+
+		CountTask(Count count, int[] path) {
+			this.count = count;
+			this.path = path;
+		}
+
+		@Override
+		protected Long compute() {
+			Worker worker = count.takeWorker();
+			List<CountTask> forked = new ArrayList<CountTask>();
+			worker.forked = forked;
+			long solutions;
+			try {
+				solutions = worker.solver.countSolutions(path, worker);
+				count.nodeCount.addAndGet(worker.solver.getNodeCount());
+			} finally {
+				worker.forked = null;
+				// the matrix of the worker is not used anymore by this task,
+				// so it can be used by the tasks which the thread runs while
+				// it waits
+				count.idleWorkers.add(worker);
+			}
+			for (int i = forked.size() - 1; i >= 0; i--)
+				solutions += forked.get(i).join();
+			return solutions;
+		}
+
+	}
+
+}
@@ -0,0 +1,64 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * The mutable counters of an {@link XorMatrix} which are updated while rows
+ * are removed and restored if the statistics of the matrix are enabled.
+ * The removed nodes and the peak size of the undo trail are counted once
+ * at the end of each removal operation and not for each node.
+ *
+ * @see XorMatrix#setStatisticsEnabled(boolean)
+ *
+ * @author Hendrik Helwich
+ */
+class PropagationCounters {
+
+	long removedNodes;
+	/** all removed rows including the direct rows */
+	long removedRows;
+	/** rows which are removed by a call of removeRow or removeRows */
+	long directRows;
+	/** rows which are queued by the inclusion rules */
+	long conflictRows, pairRows, tripleRows;
+	/** complete columns which are found in the rows of a column */
+	long completeColumns;
+	long restores;
+	int peakTrailSize;
+
+	/**
+	 * Counts the nodes which have been added to the undo trail by a removal
+	 * operation. The trail does not shrink during a removal, so its peak
+	 * size is reached at the end of the operation.
+	 *
+	 * @param  startTrailSize
+	 *         the size of the trail before the operation
+	 * @param  trailSize
+	 *         the size of the trail after the operation
+	 */
+	void countRemovedNodes(int startTrailSize, int trailSize) {
+		removedNodes += trailSize - startTrailSize;
+		if (trailSize > peakTrailSize)
+			peakTrailSize = trailSize;
+	}
+
+	/**
+	 * Sets all counters to zero.
+	 */
+	void clear() {
+		removedNodes = 0;
+		removedRows = 0;
+		directRows = 0;
+		conflictRows = 0;
+		pairRows = 0;
+		tripleRows = 0;
+		completeColumns = 0;
+		restores = 0;
+		peakTrailSize = 0;
+	}
+
+	XorMatrixStatistics toStatistics() {
+		return new XorMatrixStatistics(removedNodes, directRows,
+				removedRows - directRows, conflictRows, pairRows, tripleRows,
+				completeColumns, restores, peakTrailSize);
+	}
+
+}
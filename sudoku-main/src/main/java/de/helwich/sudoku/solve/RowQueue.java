@@ -0,0 +1,74 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * The rows which are left to be removed while the removal of a row is
+ * propagated through an {@link XorMatrix}. A row is added at most once till
+ * the queue is cleared, so the queue never holds more rows than the matrix.
+ * The rows are taken in last in first out order (depth first) or in first in
+ * first out order (breadth first).
+ *
+ * @author Hendrik Helwich
+ */
+class RowQueue {
+
+	private final int[] rows;
+	/** the rows which have been added since the last clear */
+	private final IntMarks added;
+	private int head, tail;
+	private boolean breadthFirst;
+	/** maximum number of rows in the queue since the last reset */
+	private int peakSize;
+
+	RowQueue(int rowCount) {
+		rows = new int[rowCount];
+		added = new IntMarks(rowCount);
+	}
+
+	void setBreadthFirst(boolean breadthFirst) {
+		this.breadthFirst = breadthFirst;
+	}
+
+	boolean isBreadthFirst() {
+		return breadthFirst;
+	}
+
+	/**
+	 * Adds the given row if it has not been added since the last clear.
+	 *
+	 * @return <code>true</code> if the row has been added
+	 */
+	boolean add(int row) {
+		if (added.isMarked(row))
+			return false;
+		added.mark(row);
+		rows[tail++] = row;
+		if (tail - head > peakSize)
+			peakSize = tail - head;
+		return true;
+	}
+
+	int poll() {
+		return breadthFirst ? rows[head++] : rows[--tail];
+	}
+
+	boolean isEmpty() {
+		return head == tail;
+	}
+
+	/**
+	 * Removes all rows from the queue and forgets which rows have been added.
+	 */
+	void clear() {
+		head = tail = 0;
+		added.clear();
+	}
+
+	int getPeakSize() {
+		return peakSize;
+	}
+
+	void resetPeakSize() {
+		peakSize = 0;
+	}
+
+}
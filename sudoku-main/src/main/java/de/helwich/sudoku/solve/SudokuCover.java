@@ -0,0 +1,143 @@
+package de.helwich.sudoku.solve;
+
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
+
+/**
+ * Creates {@link XorMatrix} instances for the exact cover problem of a
+ * standard sudoku with rectangular boxes.
+ * The matrix row of a cell value is <code>(row * size + column) * size +
+ * value</code> with <code>size = boxHeight * boxWidth</code>. The columns are
+ * the cell, row, column and box constraints in this order.
+ * The class is used by the tests and the benchmarks and is not part of the
+ * GWT module.
+ *
+ * @author Hendrik Helwich
+ */
+public class SudokuCover {
+
+	/** 9x9 puzzle with 30 givens */
+	public static final String EASY =
+		"530070000600195000098000060800060003400803001700020006060000280000419005000080079";
+	/** 9x9 puzzle with 21 givens */
+	public static final String HARD =
+		"800000000003600000070090200050007000000045700000100030001000068008500010090000400";
+	/** 9x9 puzzle with 17 givens */
+	public static final String MINIMAL =
+		"000000010400000000020000000000050407008000300001090000300400200050100000000806000";
+	/** 9x9 puzzles with 17 to 30 givens, the last three need many search nodes */
+	public static final String[] PUZZLES = {
+		EASY,
+		MINIMAL,
+		HARD,
+		"100007090030020008009600500005300900010080002600004000300000010040000007007000300",
+		"100000002090400050006000700050903000000070000000850040700000600030009080002000001",
+	};
+
+	private SudokuCover() {}
+
+	public static int getRow(int size, int row, int column, int value) {
+		return (row * size + column) * size + value;
+	}
+
+	public static void addColumns(XorMatrixFactory factory, int boxHeight, int boxWidth) {
+		factory.addXorColumns(getColumnOffsets(boxHeight, boxWidth),
+				getColumnRows(boxHeight, boxWidth));
+	}
+
+	/**
+	 * Returns the start index of each column in the array which is returned
+	 * by {@link #getColumnRows(int, int)}. Each column has one row for each
+	 * value.
+	 */
+	public static int[] getColumnOffsets(int boxHeight, int boxWidth) {
+		int size = boxHeight * boxWidth;
+		int[] offsets = new int[4 * size * size + 1];
+		for (int i = 0; i < offsets.length; i++)
+			offsets[i] = i * size;
+		return offsets;
+	}
+
+	/**
+	 * Returns the rows of all columns of the matrix in compressed sparse
+	 * column form.
+	 */
+	public static int[] getColumnRows(int boxHeight, int boxWidth) {
+		int size = boxHeight * boxWidth;
+		int[] rows = new int[4 * size * size * size];
+		int i = 0;
+		// cell constraints
+		for (int r = 0; r < size; r++)
+			for (int c = 0; c < size; c++)
+				for (int v = 0; v < size; v++)
+					rows[i++] = getRow(size, r, c, v);
+		// row constraints
+		for (int r = 0; r < size; r++)
+			for (int v = 0; v < size; v++)
+				for (int c = 0; c < size; c++)
+					rows[i++] = getRow(size, r, c, v);
+		// column constraints
+		for (int c = 0; c < size; c++)
+			for (int v = 0; v < size; v++)
+				for (int r = 0; r < size; r++)
+					rows[i++] = getRow(size, r, c, v);
+		// box constraints
+		for (int b = 0; b < size; b++)
+			for (int v = 0; v < size; v++) {
+				int r0 = (b / boxHeight) * boxHeight;
+				int c0 = (b % boxHeight) * boxWidth;
+				for (int r = r0; r < r0 + boxHeight; r++)
+					for (int c = c0; c < c0 + boxWidth; c++)
+						rows[i++] = getRow(size, r, c, v);
+			}
+		return rows;
+	}
+
+	public static XorMatrix createXorMatrix(Backing backing, int boxHeight, int boxWidth) {
+		XorMatrixFactory factory = new XorMatrixFactory();
+		addColumns(factory, boxHeight, boxWidth);
+		return factory.createXorMatrix(backing);
+	}
+
+	public static XorMatrix createXorMatrix(Backing backing) {
+		return createXorMatrix(backing, 3, 3);
+	}
+
+	/**
+	 * Returns the rows which must be removed to insert the givens of the
+	 * puzzle. This are all other values of the cells which hold a given.
+	 *
+	 * @param  puzzle
+	 *         The puzzle with one character per cell in row order. Values
+	 *         start with <code>'1'</code>, all other characters are empty
+	 *         cells.
+	 * @param  size
+	 *         the width and height of the puzzle
+	 * @return the rows to remove
+	 */
+	public static int[] getGivenRows(String puzzle, int size) {
+		int count = 0;
+		for (int i = 0; i < puzzle.length(); i++)
+			if (getValue(puzzle, i, size) != -1)
+				count++;
+		int[] rows = new int[count * (size - 1)];
+		int j = 0;
+		for (int i = 0; i < puzzle.length(); i++) {
+			int value = getValue(puzzle, i, size);
+			if (value != -1)
+				for (int v = 0; v < size; v++)
+					if (v != value)
+						rows[j++] = getRow(size, i / size, i % size, v);
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the value of the given cell of a puzzle starting with zero or
+	 * -1 if the cell is empty.
+	 */
+	public static int getValue(String puzzle, int index, int size) {
+		int value = Character.digit(puzzle.charAt(index), Character.MAX_RADIX) - 1;
+		return value >= 0 && value < size ? value : -1;
+	}
+
+}
@@ -0,0 +1,28 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * Interface that can be used to get notified once for all rows which are
+ * removed by one call of {@link XorMatrix#removeRow(int)} or
+ * {@link XorMatrix#removeRows(int...)}. This needs less calls than a
+ * {@link XorMatrixChangeHandler} if the removal of a row removes many other
+ * rows.
+ * The matrix must not be changed by a handler while it is notified.
+ *
+ * @see XorMatrix#addBatchChangeHandler(XorMatrixBatchChangeHandler)
+ * @see XorMatrix#removeBatchChangeHandler(XorMatrixBatchChangeHandler)
+ *
+ * @author Hendrik Helwich
+ */
+public interface XorMatrixBatchChangeHandler {
+
+	/**
+	 * @param rows
+	 *        the removed rows in the order of their removal from index 0 to
+	 *        <code>count - 1</code>; the array is reused by the matrix, so it
+	 *        must not be changed or kept after the call
+	 * @param count
+	 *        the number of removed rows which is greater than zero
+	 */
+	public void onRemoveRows(int[] rows, int count);
+
+}
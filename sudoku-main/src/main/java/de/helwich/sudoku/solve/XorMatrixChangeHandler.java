@@ -3,6 +3,7 @@ package de.helwich.sudoku.solve;
 /**
  * Interface that can be used to get notified if the state of an
  * {@link XorMatrix} has changed.
+ * The matrix must not be changed by a handler while it is notified.
  * 
  * @see XorMatrix#addChangeHandler(XorMatrixChangeHandler)
  * @see XorMatrix#removeChangeHandler(XorMatrixChangeHandler)
@@ -1,7 +1,6 @@
 package de.helwich.sudoku.solve;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * @author Hendrik Helwich
@@ -9,80 +8,336 @@ import java.util.Map;
  */
 public class XorMatrixFactory {
 
+	/**
+	 * The storage implementations of an {@link XorMatrix} which can be created
+	 * by this factory.
+	 */
+	public enum Backing {
+		/** each matrix element is a {@link MatrixNode} object */
+		NODES,
+		/** the matrix elements are stored in parallel <code>int</code> arrays */
+		ARRAYS,
+		/**
+		 * the live elements of each row and column are stored in bitsets;
+		 * this is the fastest storage for matrices with a few hundred
+		 * columns
+		 */
+		BITSETS
+	}
+
+	/**
+	 * The maximum number of columns and rows of a matrix which is stored in
+	 * bitsets if the storage is chosen by the factory. The bitsets of a
+	 * larger matrix need too much memory and time.
+	 */
+	static final int MAX_BITSET_COLUMNS = 512, MAX_BITSET_ROWS = 8192;
 
-	/* array of the first node in each row  */
-	private Map<Integer, MatrixNode> firstRowNodes; // used to create the matrix
-	/* array of the first node in each column  */
-	private Map<Integer, MatrixNode> firstColumnNodes; // used to create the matrix
-	private Map<Integer, MatrixNode> lastRowNode;
+	/* start index of each column in the array rows; the last entry is the
+	 * number of stored rows  */
+	private int[] columnOffsets;
+	/* the rows of all columns in the order they were added */
+	private int[] rows;
 	private int currentColumn;
-	
+	private int maxRow;
+
 	public XorMatrixFactory() {
 	}
-	
+
 	private void ensureInitialized() {
-		if (firstRowNodes == null) {
-			firstRowNodes = new HashMap<Integer, MatrixNode>();
-			firstColumnNodes = new HashMap<Integer, MatrixNode>();
-			lastRowNode = new HashMap<Integer, MatrixNode>();
+		if (columnOffsets == null) {
+			columnOffsets = new int[17];
+			rows = new int[64];
 			currentColumn = 0;
+			maxRow = -1;
 		}
 	}
-	
+
 	public void addXorColumn(int... rows) {
+		if (rows.length == 0)
+			throw new IllegalArgumentException("column must not be empty");
 		ensureInitialized();
-		MatrixNode up = null;
+		int nodeCount = columnOffsets[currentColumn];
+		// ensure capacity
+		if (currentColumn + 2 > columnOffsets.length) {
+			int[] tmp = new int[columnOffsets.length * 2];
+			System.arraycopy(columnOffsets, 0, tmp, 0, currentColumn + 1);
+			columnOffsets = tmp;
+		}
+		if (nodeCount + rows.length > this.rows.length) {
+			int[] tmp = new int[Math.max(this.rows.length * 2, nodeCount + rows.length)];
+			System.arraycopy(this.rows, 0, tmp, 0, nodeCount);
+			this.rows = tmp;
+		}
+		// store column
 		for (int row : rows) {
-			// create new node
-			MatrixNode node = new MatrixNode(row, currentColumn);
-			// connect with the previous node in the current row
-			if (up != null) { // not first iteration step
-				up.down = node;
-				node.up = up;
-			} else // first iteration step
-				firstColumnNodes.put(currentColumn, node);
-			up = node;
-			// connect with the previous node in the current column
-			if (firstRowNodes.get(row) == null) { // row is empty
-				firstRowNodes.put(row, node);
-				lastRowNode.put(row, node);
-			} else {
-				lastRowNode.get(row).right = node;
-				node.left = lastRowNode.get(row);
-				lastRowNode.put(row, node);
-			}
-			
+			if (row < 0)
+				throw new IllegalArgumentException("row must not be negative");
+			this.rows[nodeCount++] = row;
+			maxRow = Math.max(maxRow, row);
 		}
-		// connect top and bottom element of the column
-		MatrixNode top = lastRowNode.get(rows[0]);
-		MatrixNode bottom = lastRowNode.get(rows[rows.length-1]);
-		top.up = bottom;
-		bottom.down = top;
 		// step column counter
-		currentColumn++;
+		columnOffsets[++currentColumn] = nodeCount;
 	}
-	
+
+	/**
+	 * Adds the columns of a matrix in compressed sparse column form: the rows
+	 * of the column <code>c</code> are stored in the array <code>rows</code>
+	 * from index <code>offsets[c]</code> to <code>offsets[c + 1] - 1</code>.
+	 * This is faster than adding each column with the operation
+	 * {@link #addXorColumn(int...)}. The given arrays are not changed and not
+	 * referenced by this factory.
+	 *
+	 * @param  offsets
+	 *         start index of each column in the array rows; the last entry is
+	 *         the end index of the last column
+	 * @param  rows
+	 *         the rows of all columns
+	 * @throws IllegalArgumentException
+	 *         if a column is empty, a row is negative or an offset is not in
+	 *         the array rows
+	 */
+	public void addXorColumns(int[] offsets, int[] rows) {
+		int max = getMaxRow(offsets, rows);
+		int columnCount = offsets.length - 1;
+		int start = offsets[0];
+		int end = offsets[columnCount];
+		ensureInitialized();
+		maxRow = Math.max(maxRow, max);
+		int nodeCount = columnOffsets[currentColumn];
+		// ensure capacity
+		if (currentColumn + columnCount + 1 > columnOffsets.length) {
+			int[] tmp = new int[Math.max(columnOffsets.length * 2, currentColumn + columnCount + 1)];
+			System.arraycopy(columnOffsets, 0, tmp, 0, currentColumn + 1);
+			columnOffsets = tmp;
+		}
+		if (nodeCount + end - start > this.rows.length) {
+			int[] tmp = new int[Math.max(this.rows.length * 2, nodeCount + end - start)];
+			System.arraycopy(this.rows, 0, tmp, 0, nodeCount);
+			this.rows = tmp;
+		}
+		// store columns
+		System.arraycopy(rows, start, this.rows, nodeCount, end - start);
+		for (int column = 1; column <= columnCount; column++)
+			columnOffsets[currentColumn + column] = nodeCount + offsets[column] - start;
+		currentColumn += columnCount;
+	}
+
+	/**
+	 * Sets the columns of an empty factory in compressed sparse column form
+	 * like the operation {@link #addXorColumns(int[], int[])}, but the given
+	 * arrays are used by the created matrix without a copy. This is used to
+	 * load a matrix from a snapshot.
+	 *
+	 * @param  offsets
+	 *         start index of each column in the array rows which must start
+	 *         with zero and end with the length of the array rows
+	 * @param  rows
+	 *         the rows of all columns
+	 * @throws IllegalArgumentException
+	 *         if the offsets do not cover the array rows, a column is empty
+	 *         or a row is negative
+	 */
+	void setXorColumns(int[] offsets, int[] rows) {
+		int max = getMaxRow(offsets, rows);
+		if (offsets[0] != 0 || offsets[offsets.length - 1] != rows.length)
+			throw new IllegalArgumentException("offsets do not cover the rows");
+		columnOffsets = offsets;
+		this.rows = rows;
+		currentColumn = offsets.length - 1;
+		maxRow = max;
+	}
+
+	/**
+	 * Checks the given columns in compressed sparse column form.
+	 *
+	 * @return the largest row of the columns
+	 * @throws IllegalArgumentException
+	 *         if a column is empty, a row is negative or an offset is not in
+	 *         the array rows
+	 */
+	private static int getMaxRow(int[] offsets, int[] rows) {
+		if (offsets.length == 0 || offsets[0] < 0
+				|| offsets[offsets.length - 1] > rows.length)
+			throw new IllegalArgumentException("offsets are out of range");
+		int columnCount = offsets.length - 1;
+		for (int column = 0; column < columnCount; column++)
+			if (offsets[column + 1] <= offsets[column])
+				throw new IllegalArgumentException("column must not be empty");
+		int max = -1;
+		for (int i = offsets[0]; i < offsets[columnCount]; i++) {
+			if (rows[i] < 0)
+				throw new IllegalArgumentException("row must not be negative");
+			max = Math.max(max, rows[i]);
+		}
+		return max;
+	}
+
+	/**
+	 * Creates a matrix of the columns which have been added before with a
+	 * storage implementation which is chosen by the size of the matrix.
+	 * A matrix with at most {@value #MAX_BITSET_COLUMNS} columns and
+	 * {@value #MAX_BITSET_ROWS} rows is stored in {@link Backing#BITSETS},
+	 * a larger matrix in {@link Backing#NODES}. All storages remove the same
+	 * nodes in the same order.
+	 *
+	 * @return the new matrix
+	 */
 	public XorMatrix createXorMatrix() {
 		ensureInitialized();
-		// connect first row elements with last row elements
-		for (MatrixNode first : firstRowNodes.values()) {
-			MatrixNode last = lastRowNode.get(first.row);
-			first.left = last;
-			last.right = first;
+		if (currentColumn <= MAX_BITSET_COLUMNS && maxRow < MAX_BITSET_ROWS)
+			return createXorMatrix(Backing.BITSETS);
+		return createXorMatrix(Backing.NODES);
+	}
+
+	/**
+	 * Creates a matrix of the columns which have been added before.
+	 * Afterwards the factory is empty and can be used to create a new matrix.
+	 *
+	 * @param  backing
+	 *         the storage implementation of the matrix
+	 * @return the new matrix
+	 */
+	public XorMatrix createXorMatrix(Backing backing) {
+		ensureInitialized();
+		XorMatrix matrix;
+		switch (backing) {
+		case ARRAYS:
+			matrix = createArrayXorMatrix();
+			break;
+		case BITSETS:
+			matrix = new BitsetXorMatrix(maxRow + 1, trimColumnOffsets(),
+					trimRows());
+			break;
+		default:
+			matrix = createNodeXorMatrix();
 		}
-		// create matrix
-		XorMatrix matrix = new XorMatrix(firstRowNodes, firstColumnNodes);
 		// free for garbage collector
-		firstRowNodes = null;
-		firstColumnNodes = null;
-		lastRowNode = null;
+		columnOffsets = null;
+		rows = null;
 		return matrix;
 	}
 
+	private NodeXorMatrix createNodeXorMatrix() {
+		/* array of the first node in each row  */
+		MatrixNode[] firstRowNodes = new MatrixNode[maxRow + 1];
+		/* array of the first node in each column  */
+		MatrixNode[] firstColumnNodes = new MatrixNode[currentColumn];
+		/* all nodes in column order */
+		MatrixNode[] nodes = new MatrixNode[columnOffsets[currentColumn]];
+		/* array of the last node in each row */
+		MatrixNode[] lastRowNodes = new MatrixNode[maxRow + 1];
+		for (int column = 0; column < currentColumn; column++) {
+			int start = columnOffsets[column];
+			int end = columnOffsets[column + 1];
+			MatrixNode up = null;
+			for (int i = start; i < end; i++) {
+				int row = rows[i];
+				// create new node
+				MatrixNode node = new MatrixNode(row, column, i);
+				nodes[i] = node;
+				// connect with the previous node in the current row
+				if (up != null) { // not first iteration step
+					up.down = node;
+					node.up = up;
+				} else // first iteration step
+					firstColumnNodes[column] = node;
+				up = node;
+				// connect with the previous node in the current column
+				if (firstRowNodes[row] == null) // row is empty
+					firstRowNodes[row] = node;
+				else {
+					lastRowNodes[row].right = node;
+					node.left = lastRowNodes[row];
+				}
+				lastRowNodes[row] = node;
+			}
+			// connect top and bottom element of the column
+			MatrixNode top = nodes[start];
+			MatrixNode bottom = nodes[end - 1];
+			top.up = bottom;
+			bottom.down = top;
+		}
+		// connect first row elements with last row elements
+		for (MatrixNode first : firstRowNodes)
+			if (first != null) {
+				MatrixNode last = lastRowNodes[first.row];
+				first.left = last;
+				last.right = first;
+			}
+		return new NodeXorMatrix(nodes, firstRowNodes, firstColumnNodes,
+				trimColumnOffsets(), trimRows());
+	}
+
+	private ArrayXorMatrix createArrayXorMatrix() {
+		int nodeCount = columnOffsets[currentColumn];
+		int[] left = new int[nodeCount];
+		int[] right = new int[nodeCount];
+		int[] up = new int[nodeCount];
+		int[] down = new int[nodeCount];
+		int[] firstRowNodes = new int[maxRow + 1];
+		int[] lastRowNodes = new int[maxRow + 1];
+		int[] firstColumnNodes = new int[currentColumn];
+		Arrays.fill(firstRowNodes, -1);
+		// the node index is the index of the node row in the array rows
+		for (int c = 0; c < currentColumn; c++) {
+			int start = columnOffsets[c];
+			int end = columnOffsets[c + 1];
+			firstColumnNodes[c] = start;
+			for (int node = start; node < end; node++) {
+				int r = rows[node];
+				// connect with the previous and next node in the current column
+				up[node] = node == start ? end - 1 : node - 1;
+				down[node] = node == end - 1 ? start : node + 1;
+				// connect with the previous node in the current row
+				if (firstRowNodes[r] == -1)
+					firstRowNodes[r] = node;
+				else {
+					right[lastRowNodes[r]] = node;
+					left[node] = lastRowNodes[r];
+				}
+				lastRowNodes[r] = node;
+			}
+		}
+		// connect first row elements with last row elements
+		for (int r = 0; r <= maxRow; r++) {
+			int first = firstRowNodes[r];
+			if (first != -1) {
+				left[first] = lastRowNodes[r];
+				right[lastRowNodes[r]] = first;
+			}
+		}
+		return new ArrayXorMatrix(left, right, up, down, firstRowNodes,
+				firstColumnNodes, trimColumnOffsets(), trimRows());
+	}
+
+	/*
+	 * The following operations hand the arrays of this factory over to a new
+	 * matrix. An array is returned itself if it has the needed length and
+	 * a trimmed copy otherwise. This is safe because the factory never
+	 * changes the stored part of the arrays and forgets them when a matrix
+	 * is created.
+	 */
+
+	private int[] trimColumnOffsets() {
+		if (columnOffsets.length == currentColumn + 1)
+			return columnOffsets;
+		int[] copy = new int[currentColumn + 1];
+		System.arraycopy(columnOffsets, 0, copy, 0, copy.length);
+		return copy;
+	}
+
+	private int[] trimRows() {
+		if (rows.length == columnOffsets[currentColumn])
+			return rows;
+		int[] copy = new int[columnOffsets[currentColumn]];
+		System.arraycopy(rows, 0, copy, 0, copy.length);
+		return copy;
+	}
+
 	@Override
 	public String toString() {
 		ensureInitialized();
-		return new XorMatrix(firstRowNodes, firstColumnNodes).toString();
+		return createNodeXorMatrix().toString();
 	}
-	
+
 }
@@ -0,0 +1,182 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * A bounded pool of matrices which are copies of the same template matrix.
+ * A matrix is taken from the pool by {@link #acquire()} and given back by
+ * {@link #release(XorMatrix)}, which resets it to the initial state of the
+ * template by {@link XorMatrix#reset()}. If the pool is empty a new copy of
+ * the template is created, if it is full a released matrix is dropped.
+ * The array based storages are reset by copying their initial arrays. A
+ * matrix with the {@link XorMatrixFactory.Backing#NODES} storage is reset by
+ * undoing its trail, so pooling it saves the creation of the nodes but not
+ * the time to restore them.
+ * The pool counts the acquired matrices which have been taken from the pool
+ * (hits) and the time which is needed to reset the released matrices.
+ * All operations are thread safe.
+ *
+ * @author Hendrik Helwich
+ */
+public class XorMatrixPool {
+
+	/** the matrix in its initial state which is copied on a miss */
+	private final XorMatrix template;
+	/** the matrices which can be acquired */
+	private final XorMatrix[] idle;
+	private int idleCount;
+
+	private long acquires, hits, resets, resetNanos;
+
+	/**
+	 * Creates an empty pool of copies of the given matrix. The copies are
+	 * reset to the initial state of the given matrix and get its inclusion
+	 * size and propagation order.
+	 *
+	 * @param  template
+	 *         a matrix of the pooled type; the matrix is not changed
+	 * @param  capacity
+	 *         the maximum number of idle matrices in the pool
+	 * @throws IllegalArgumentException
+	 *         if the capacity is negative
+	 */
+	public XorMatrixPool(XorMatrix template, int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity must not be negative");
+		this.template = template.copy();
+		this.template.reset();
+		idle = new XorMatrix[capacity];
+	}
+
+	/**
+	 * Returns a matrix in the initial state of the template which is not used
+	 * by another caller. The matrix should be released by
+	 * {@link #release(XorMatrix)} if it is not used anymore.
+	 *
+	 * @return a matrix in its initial state
+	 */
+	public synchronized XorMatrix acquire() {
+		acquires++;
+		if (idleCount > 0) {
+			hits++;
+			XorMatrix matrix = idle[--idleCount];
+			idle[idleCount] = null;
+			return matrix;
+		}
+		return template.copy();
+	}
+
+	/**
+	 * Resets the given matrix and adds it to the pool if the pool is not
+	 * full. The change handlers of the matrix are removed, the statistics are
+	 * disabled and the settings of the template are restored. The matrix must
+	 * not be used by the caller afterwards.
+	 *
+	 * @param  matrix
+	 *         a matrix which has been returned by {@link #acquire()}
+	 * @throws IllegalArgumentException
+	 *         if the matrix is not a copy of the template of this pool
+	 * @throws IllegalStateException
+	 *         if the matrix is released twice
+	 */
+	public void release(XorMatrix matrix) {
+		if (matrix.columnRows != template.columnRows)
+			throw new IllegalArgumentException("matrix is not a copy of the template");
+		// check before the reset, which would change an idle matrix
+		synchronized (this) {
+			for (int i = 0; i < idleCount; i++)
+				if (idle[i] == matrix)
+					throw new IllegalStateException("matrix is released twice");
+		}
+		long start = System.nanoTime();
+		matrix.reset();
+		matrix.removeAllChangeHandlers();
+		matrix.setStatisticsEnabled(false);
+		matrix.setMaxInclusionSize(template.getMaxInclusionSize());
+		matrix.setPropagationOrder(template.getPropagationOrder());
+		long time = System.nanoTime() - start;
+		synchronized (this) {
+			resets++;
+			resetNanos += time;
+			if (idleCount < idle.length)
+				idle[idleCount++] = matrix;
+		}
+	}
+
+	/**
+	 * Returns the maximum number of idle matrices in the pool.
+	 */
+	public int getCapacity() {
+		return idle.length;
+	}
+
+	/**
+	 * Returns the number of matrices which can be acquired without creating
+	 * a new matrix.
+	 */
+	public synchronized int getIdleCount() {
+		return idleCount;
+	}
+
+	/**
+	 * Returns the number of calls of {@link #acquire()}.
+	 */
+	public synchronized long getAcquireCount() {
+		return acquires;
+	}
+
+	/**
+	 * Returns the number of calls of {@link #acquire()} which have returned a
+	 * matrix of the pool instead of a new copy of the template.
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Returns the part of the calls of {@link #acquire()} which have returned
+	 * a matrix of the pool.
+	 *
+	 * @return the hit rate between 0 and 1 or 0 if no matrix has been
+	 *         acquired
+	 */
+	public synchronized double getHitRate() {
+		return acquires == 0 ? 0 : (double) hits / acquires;
+	}
+
+	/**
+	 * Returns the number of released matrices.
+	 */
+	public synchronized long getResetCount() {
+		return resets;
+	}
+
+	/**
+	 * Returns the total time in nanoseconds which has been needed to reset
+	 * the released matrices.
+	 */
+	public synchronized long getResetNanos() {
+		return resetNanos;
+	}
+
+	/**
+	 * Returns the average time in nanoseconds which has been needed to reset
+	 * a released matrix or 0 if no matrix has been released.
+	 */
+	public synchronized long getAverageResetNanos() {
+		return resets == 0 ? 0 : resetNanos / resets;
+	}
+
+	/**
+	 * Sets all counters to zero.
+	 */
+	public synchronized void resetMetrics() {
+		acquires = hits = resets = resetNanos = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "acquires: " + acquires + ", hit rate: " + getHitRate()
+				+ ", resets: " + resets + ", average reset: "
+				+ getAverageResetNanos() + " ns";
+	}
+
+}
@@ -0,0 +1,260 @@
+package de.helwich.sudoku.solve;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import de.helwich.sudoku.solve.XorMatrix.PropagationOrder;
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
+
+/**
+ * Stores an {@link XorMatrix} in a compact binary file and loads it again.
+ * A snapshot contains the initial matrix, the undo trail and the open
+ * checkpoints, so a loaded matrix has the same state as the stored matrix and
+ * can be restored to the same states. A snapshot of a matrix without removed
+ * rows can be used as a template which is faster to load than building the
+ * matrix again.
+ * <p>
+ * The file is a sequence of big endian <code>int</code> values:
+ * <ol>
+ * <li>the magic number {@link #MAGIC} and the format {@link #VERSION}</li>
+ * <li>the number of columns, the number of matrix elements, the maximum
+ * inclusion size, the ordinal of the propagation order, the size of the undo
+ * trail and the number of open checkpoints</li>
+ * <li>the initial matrix in compressed sparse column form like it is passed
+ * to {@link XorMatrixFactory#addXorColumns(int[], int[])}</li>
+ * <li>the element indices of the undo trail in the order of their removal;
+ * the elements are indexed in column order</li>
+ * <li>the trail size of each open checkpoint</li>
+ * </ol>
+ * The file is mapped into memory on loading and the arrays are read with bulk
+ * operations into the arrays which are used by the loaded matrix. The change
+ * handlers and the storage implementation of a matrix are not stored.
+ * This class is not part of the GWT module because it depends on
+ * <code>java.nio</code>.
+ *
+ * @author Hendrik Helwich
+ */
+public class XorMatrixSnapshot {
+
+	/** the first value of a snapshot file: "XORM" in ASCII */
+	public static final int MAGIC = 0x584F524D;
+	/** the version of the file format */
+	public static final int VERSION = 1;
+
+	/** the number of values before the arrays */
+	private static final int HEADER_SIZE = 8;
+
+	private XorMatrixSnapshot() {
+	}
+
+	/**
+	 * Writes a snapshot of the given matrix in its current state to the given
+	 * file. An existing file is overwritten.
+	 *
+	 * @param  matrix
+	 *         the matrix to store
+	 * @param  file
+	 *         the file to write
+	 * @throws IOException
+	 *         if the file can not be written
+	 */
+	public static void write(XorMatrix matrix, File file) throws IOException {
+		ByteBuffer buffer = toByteBuffer(matrix);
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.setLength(0);
+			FileChannel channel = out.getChannel();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the given matrix in its current state. The
+	 * position of the returned buffer is zero and its limit is the size of the
+	 * snapshot.
+	 *
+	 * @param  matrix
+	 *         the matrix to store
+	 * @return the snapshot
+	 */
+	public static ByteBuffer toByteBuffer(XorMatrix matrix) {
+		int columnCount = matrix.getColumnCount();
+		int nodeCount = matrix.columnRows.length;
+		int trailSize = matrix.getTrailSize();
+		int checkpointCount = matrix.getCheckpointCount();
+		ByteBuffer buffer = ByteBuffer.allocate(4 * (HEADER_SIZE
+				+ columnCount + 1 + nodeCount + trailSize + checkpointCount));
+		IntBuffer ints = buffer.asIntBuffer();
+		ints.put(MAGIC);
+		ints.put(VERSION);
+		ints.put(columnCount);
+		ints.put(nodeCount);
+		ints.put(matrix.getMaxInclusionSize());
+		ints.put(matrix.getPropagationOrder().ordinal());
+		ints.put(trailSize);
+		ints.put(checkpointCount);
+		ints.put(matrix.columnOffsets);
+		ints.put(matrix.columnRows);
+		for (int i = 0; i < trailSize; i++)
+			ints.put(matrix.getTrailNode(i));
+		for (int mark = 0; mark < checkpointCount; mark++)
+			ints.put(matrix.getCheckpointTrailSize(mark));
+		return buffer;
+	}
+
+	/**
+	 * Loads a matrix from the given snapshot file with the storage
+	 * implementation which is chosen by
+	 * {@link XorMatrixFactory#createXorMatrix()}.
+	 *
+	 * @see #read(File, Backing)
+	 */
+	public static XorMatrix read(File file) throws IOException {
+		return readMatrix(map(file), null);
+	}
+
+	/**
+	 * Loads a matrix from the given snapshot file. The file is mapped into
+	 * memory while it is read.
+	 *
+	 * @param  file
+	 *         a file which has been written by {@link #write(XorMatrix, File)}
+	 * @param  backing
+	 *         the storage implementation of the loaded matrix which does not
+	 *         need to be the one of the stored matrix
+	 * @return the loaded matrix
+	 * @throws IOException
+	 *         if the file can not be read or is not a valid snapshot
+	 */
+	public static XorMatrix read(File file, Backing backing) throws IOException {
+		return read(map(file), backing);
+	}
+
+	/**
+	 * Maps the given file into memory. The mapping stays valid after the file
+	 * has been closed.
+	 */
+	private static ByteBuffer map(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Loads a matrix from the given snapshot with the storage implementation
+	 * which is chosen by {@link XorMatrixFactory#createXorMatrix()}.
+	 *
+	 * @see #read(ByteBuffer, Backing)
+	 */
+	public static XorMatrix read(ByteBuffer buffer) throws IOException {
+		return readMatrix(buffer, null);
+	}
+
+	/**
+	 * Loads a matrix from the given snapshot which starts at the position of
+	 * the given buffer. The position of the buffer is not changed.
+	 *
+	 * @param  buffer
+	 *         a snapshot which has been created by
+	 *         {@link #toByteBuffer(XorMatrix)} or written to a file
+	 * @param  backing
+	 *         the storage implementation of the loaded matrix
+	 * @return the loaded matrix
+	 * @throws IOException
+	 *         if the buffer does not contain a valid snapshot
+	 */
+	public static XorMatrix read(ByteBuffer buffer, Backing backing)
+			throws IOException {
+		return readMatrix(buffer, backing);
+	}
+
+	/**
+	 * Loads a matrix with the given storage implementation or with the one
+	 * which is chosen by the factory if it is <code>null</code>.
+	 */
+	private static XorMatrix readMatrix(ByteBuffer buffer, Backing backing)
+			throws IOException {
+		// a view of the buffer is read which has the big endian byte order
+		IntBuffer ints = buffer.slice().asIntBuffer();
+		try {
+			if (ints.get() != MAGIC)
+				throw new IOException("not a matrix snapshot");
+			int version = ints.get();
+			if (version != VERSION)
+				throw new IOException("unsupported snapshot version " + version);
+			int columnCount = ints.get();
+			int nodeCount = ints.get();
+			int inclusionSize = ints.get();
+			int order = ints.get();
+			int trailSize = ints.get();
+			int checkpointCount = ints.get();
+			if (columnCount < 0 || nodeCount < 0 || trailSize < 0
+					|| trailSize > nodeCount || checkpointCount < 0
+					|| order < 0 || order >= PropagationOrder.values().length
+					|| columnCount + 1 + nodeCount + trailSize + checkpointCount
+							> ints.remaining())
+				throw new IOException("invalid snapshot header");
+			int[] columnOffsets = new int[columnCount + 1];
+			int[] columnRows = new int[nodeCount];
+			int[] trail = new int[trailSize];
+			int[] checkpoints = new int[checkpointCount];
+			ints.get(columnOffsets);
+			ints.get(columnRows);
+			ints.get(trail);
+			ints.get(checkpoints);
+			// the arrays are used by the matrix without a further copy
+			XorMatrixFactory factory = new XorMatrixFactory();
+			factory.setXorColumns(columnOffsets, columnRows);
+			XorMatrix matrix = backing == null ? factory.createXorMatrix()
+					: factory.createXorMatrix(backing);
+			matrix.setMaxInclusionSize(inclusionSize);
+			matrix.setPropagationOrder(PropagationOrder.values()[order]);
+			replay(matrix, trail, checkpoints);
+			return matrix;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("snapshot is truncated");
+		} catch (IllegalArgumentException e) {
+			throw new IOException("invalid snapshot: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Removes the nodes of the given trail from the given matrix and opens
+	 * the checkpoints when the trail has reached their size.
+	 */
+	private static void replay(XorMatrix matrix, int[] trail, int[] checkpoints)
+			throws IOException {
+		int nodeCount = matrix.columnRows.length;
+		int mark = 0;
+		for (int i = 0; i <= trail.length; i++) {
+			while (mark < checkpoints.length && checkpoints[mark] == i) {
+				matrix.checkpoint();
+				mark++;
+			}
+			if (i < trail.length) {
+				int node = trail[i];
+				if (node < 0 || node >= nodeCount)
+					throw new IOException("invalid node " + node + " in trail");
+				matrix.replayTrailNode(node);
+			}
+		}
+		if (mark < checkpoints.length)
+			throw new IOException("invalid checkpoint " + checkpoints[mark]);
+		if (matrix.getTrailSize() != trail.length)
+			throw new IOException("trail contains a node twice");
+	}
+
+}
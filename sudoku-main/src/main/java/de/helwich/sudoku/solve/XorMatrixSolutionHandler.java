@@ -0,0 +1,20 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * Interface that can be used to get notified for each solution which is
+ * found by a {@link XorMatrixSolver}.
+ *
+ * @see XorMatrixSolver#solve(XorMatrixSolutionHandler)
+ *
+ * @author Hendrik Helwich
+ */
+public interface XorMatrixSolutionHandler {
+
+	/**
+	 * @param rows
+	 *        the rows of the solution in ascending order; the array is not
+	 *        used by the solver afterwards
+	 */
+	public void onSolution(int[] rows);
+
+}
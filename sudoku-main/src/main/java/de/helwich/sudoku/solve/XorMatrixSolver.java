@@ -0,0 +1,352 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * Searches all solutions of a {@link XorMatrix}. A solution is a set of rows
+ * which contains exactly one row of each column.
+ * The search chooses the column with the fewest rows which are left, selects
+ * each of its rows in turn and backtracks with the checkpoints of the matrix
+ * (Knuth's Algorithm X). The matrix removes all rows which can not be part of
+ * a solution after each step.
+ * The matrix must not be changed by other objects during a search and is
+ * restored to its initial state afterwards.
+ *
+ * @author Hendrik Helwich
+ */
+public class XorMatrixSolver {
+
+	/**
+	 * The default limit of {@link #countSolutions()} which is enough to
+	 * decide if a puzzle has no, one or more solutions.
+	 */
+	public static final int DEFAULT_COUNT_LIMIT = 2;
+
+	private final XorMatrix matrix;
+	/** number of rows which are left in each column */
+	private final int[] columnSizes;
+	/** number of columns without a row or with exactly one row */
+	private int emptyColumns, singleColumns;
+	/** the rows which are removed during the search in the order of their removal */
+	private final IntStack removedRows = new IntStack(64);
+	/** the rows of the branching columns of all search levels */
+	private final IntStack candidates = new IntStack(64);
+	/**
+	 * the decisions on the path to the current search node: a selected row
+	 * <code>r</code> is stored as <code>r</code> and an excluded row as
+	 * <code>~r</code>
+	 */
+	private final IntStack decisions = new IntStack(64);
+	/** reusable buffer of the rows which are removed by selecting a row */
+	private int[] conflictingRows = new int[64];
+	private final XorMatrixBatchChangeHandler changeHandler = new XorMatrixBatchChangeHandler() {
+		public void onRemoveRows(int[] rows, int count) {
+			for (int r = 0; r < count; r++) {
+				int row = rows[r];
+				removedRows.push(row);
+				for (int i = matrix.rowOffsets[row]; i < matrix.rowOffsets[row + 1]; i++)
+					switch (--columnSizes[matrix.rowColumns[i]]) {
+					case 1:
+						singleColumns++;
+						break;
+					case 0:
+						singleColumns--;
+						emptyColumns++;
+					}
+			}
+		}
+	};
+
+	private XorMatrixSolutionHandler solutionHandler;
+	/** the handler of split search nodes or <code>null</code> */
+	private XorMatrixSplitHandler splitHandler;
+	private int solutionLimit;
+	private int solutionCount;
+	/** number of visited search nodes */
+	private int nodeCount;
+
+	public XorMatrixSolver(XorMatrix matrix) {
+		this.matrix = matrix;
+		columnSizes = new int[matrix.getColumnCount()];
+	}
+
+	/**
+	 * Passes all solutions of the matrix to the given handler.
+	 *
+	 * @param  handler
+	 * @return the number of solutions
+	 * @throws IllegalArgumentException
+	 *         if the handler is <code>null</code>
+	 */
+	public int solve(XorMatrixSolutionHandler handler) {
+		return solve(handler, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Passes the solutions of the matrix to the given handler till the given
+	 * number of solutions is found.
+	 *
+	 * @param  handler
+	 * @param  limit
+	 *         the maximum number of solutions which are searched
+	 * @return the number of found solutions which is not greater than the limit
+	 * @throws IllegalArgumentException
+	 *         if the handler is <code>null</code> or the limit is not
+	 *         positive
+	 */
+	public int solve(XorMatrixSolutionHandler handler, int limit) {
+		if (handler == null)
+			throw new IllegalArgumentException("handler must not be null");
+		return run(handler, limit);
+	}
+
+	/**
+	 * Counts the solutions of the matrix till {@link #DEFAULT_COUNT_LIMIT}
+	 * solutions are found.
+	 *
+	 * @return 0 if the matrix has no solution, 1 if the solution is unique
+	 *         and 2 if there are more solutions
+	 */
+	public int countSolutions() {
+		return countSolutions(DEFAULT_COUNT_LIMIT);
+	}
+
+	/**
+	 * Counts the solutions of the matrix till the given number of solutions
+	 * is found. The solutions are not collected.
+	 *
+	 * @param  limit
+	 *         the maximum number of solutions which are searched
+	 * @return the number of found solutions which is not greater than the limit
+	 * @throws IllegalArgumentException
+	 *         if the limit is not positive
+	 */
+	public int countSolutions(int limit) {
+		return run(null, limit);
+	}
+
+	/**
+	 * Counts all solutions of the subtree which is reached by the given
+	 * decisions. This is used to search subtrees which are passed to a split
+	 * handler by another solver of a copy of the matrix.
+	 *
+	 * @param  path
+	 *         the decisions on the path to the subtree
+	 * @param  splitHandler
+	 *         the handler which takes the branches of the search nodes it
+	 *         splits or <code>null</code> to search all branches
+	 * @return the number of solutions which are not passed to the split
+	 *         handler
+	 */
+	int countSolutions(int[] path, XorMatrixSplitHandler splitHandler) {
+		this.splitHandler = splitHandler;
+		return run(null, Integer.MAX_VALUE, path);
+	}
+
+	/**
+	 * Returns the number of search nodes which have been visited by the last
+	 * call of a solve or count operation. A search node is a state of the
+	 * matrix in which a column is chosen or a solution is found.
+	 *
+	 * @return the number of visited search nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	private int run(XorMatrixSolutionHandler handler, int limit) {
+		return run(handler, limit, null);
+	}
+
+	private int run(XorMatrixSolutionHandler handler, int limit, int[] path) {
+		if (limit <= 0)
+			throw new IllegalArgumentException("limit must be positive");
+		solutionHandler = handler;
+		solutionLimit = limit;
+		solutionCount = 0;
+		nodeCount = 0;
+		initColumnSizes();
+		int mark = matrix.checkpoint();
+		matrix.addBatchChangeHandler(changeHandler);
+		try {
+			if (emptyColumns == 0 && (path == null || replay(path)))
+				search();
+		} finally {
+			matrix.removeBatchChangeHandler(changeHandler);
+			matrix.rollback(mark);
+			removedRows.clear();
+			candidates.clear();
+			decisions.clear();
+			solutionHandler = null;
+			splitHandler = null;
+		}
+		return solutionCount;
+	}
+
+	private void initColumnSizes() {
+		emptyColumns = singleColumns = 0;
+		for (int column = 0; column < columnSizes.length; column++) {
+			int size = 0;
+			for (int i = matrix.columnOffsets[column]; i < matrix.columnOffsets[column + 1]; i++)
+				if (matrix.containsRow(matrix.columnRows[i]))
+					size++;
+			columnSizes[column] = size;
+			if (size == 0)
+				emptyColumns++;
+			else if (size == 1)
+				singleColumns++;
+		}
+	}
+
+	/**
+	 * Applies the given decisions to the matrix.
+	 *
+	 * @return <code>false</code> if a column gets empty
+	 */
+	private boolean replay(int[] path) {
+		for (int decision : path) {
+			decisions.push(decision);
+			if (decision >= 0) {
+				if (!matrix.containsRow(decision))
+					return false;
+				selectRow(decision);
+			} else
+				matrix.removeRow(~decision);
+			if (emptyColumns > 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Searches all solutions of the current matrix state which must not
+	 * contain an empty column.
+	 */
+	private void search() {
+		nodeCount++;
+		if (singleColumns == columnSizes.length) { // each column has one row
+			addSolution();
+			return;
+		}
+		// choose the column with the fewest rows
+		int column = -1;
+		int min = Integer.MAX_VALUE;
+		for (int c = 0; c < columnSizes.length; c++) {
+			int size = columnSizes[c];
+			if (size > 1 && size < min) {
+				column = c;
+				min = size;
+				if (size == 2)
+					break;
+			}
+		}
+		// rows above this index are pushed by this call
+		int base = candidates.size();
+		for (int i = matrix.columnOffsets[column]; i < matrix.columnOffsets[column + 1]; i++)
+			if (matrix.containsRow(matrix.columnRows[i]))
+				candidates.push(matrix.columnRows[i]);
+		if (splitHandler != null && splitHandler.isSplitting(decisions.size())) {
+			splitCandidates(base);
+			candidates.truncate(base);
+			return;
+		}
+		int mark = matrix.checkpoint();
+		int removedCount = removedRows.size();
+		int decisionCount = decisions.size();
+		for (int i = base; i < candidates.size(); i++) {
+			int row = candidates.get(i);
+			if (!matrix.containsRow(row))
+				continue; // removed by a previous step on this level
+			int innerMark = matrix.checkpoint();
+			int innerRemovedCount = removedRows.size();
+			decisions.push(row);
+			selectRow(row);
+			if (emptyColumns == 0)
+				search();
+			rollback(innerMark, innerRemovedCount);
+			if (solutionCount == solutionLimit)
+				break;
+			// the remaining solutions do not contain the row
+			decisions.set(decisions.size() - 1, ~row);
+			matrix.removeRow(row);
+			if (emptyColumns > 0)
+				break;
+		}
+		decisions.truncate(decisionCount);
+		rollback(mark, removedCount);
+		candidates.truncate(base);
+	}
+
+	/**
+	 * Passes a path for each candidate above the given index to the split
+	 * handler. The path of a candidate selects it and excludes
+	 * the candidates before, so the solutions of the paths are disjoint.
+	 */
+	private void splitCandidates(int base) {
+		int count = candidates.size() - base;
+		int length = decisions.size();
+		for (int i = 0; i < count; i++) {
+			int[] path = new int[length + i + 1];
+			for (int j = 0; j < length; j++)
+				path[j] = decisions.get(j);
+			for (int j = 0; j < i; j++)
+				path[length + j] = ~candidates.get(base + j);
+			path[length + i] = candidates.get(base + i);
+			splitHandler.onSplit(path);
+		}
+	}
+
+	/**
+	 * Removes all rows which share a column with the given row in a single
+	 * call, so the batch handlers are notified once. A row which
+	 * shares more than one column with the given row is passed more than
+	 * once, which is ignored by the matrix.
+	 */
+	private void selectRow(int row) {
+		int count = 0;
+		for (int i = matrix.rowOffsets[row]; i < matrix.rowOffsets[row + 1]; i++) {
+			int column = matrix.rowColumns[i];
+			for (int j = matrix.columnOffsets[column]; j < matrix.columnOffsets[column + 1]; j++) {
+				int other = matrix.columnRows[j];
+				if (other != row && matrix.containsRow(other)) {
+					if (count == conflictingRows.length) {
+						int[] tmp = new int[count * 2];
+						System.arraycopy(conflictingRows, 0, tmp, 0, count);
+						conflictingRows = tmp;
+					}
+					conflictingRows[count++] = other;
+				}
+			}
+		}
+		matrix.removeRows(conflictingRows, count);
+	}
+
+	private void rollback(int mark, int removedCount) {
+		matrix.rollback(mark);
+		while (removedRows.size() > removedCount) {
+			int row = removedRows.pop();
+			for (int i = matrix.rowOffsets[row]; i < matrix.rowOffsets[row + 1]; i++)
+				switch (columnSizes[matrix.rowColumns[i]]++) {
+				case 0:
+					emptyColumns--;
+					singleColumns++;
+					break;
+				case 1:
+					singleColumns--;
+				}
+		}
+	}
+
+	private void addSolution() {
+		solutionCount++;
+		if (solutionHandler == null)
+			return; // only count
+		int[] rows = new int[columnSizes.length];
+		int size = 0;
+		for (int row = 0; row < matrix.getRowCount(); row++)
+			if (matrix.containsRow(row))
+				rows[size++] = row;
+		int[] solution = new int[size];
+		System.arraycopy(rows, 0, solution, 0, size);
+		solutionHandler.onSolution(solution);
+	}
+
+}
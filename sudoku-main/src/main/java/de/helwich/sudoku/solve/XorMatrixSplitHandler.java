@@ -0,0 +1,34 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * Interface that can be used to take the branches of search nodes of a
+ * {@link XorMatrixSolver} instead of searching them, e.g. to search them in
+ * other threads.
+ *
+ * @see XorMatrixSolver#countSolutions(int[], XorMatrixSplitHandler)
+ *
+ * @author Hendrik Helwich
+ */
+interface XorMatrixSplitHandler {
+
+	/**
+	 * Returns <code>true</code> if the branches of a search node should be
+	 * passed to the operation {@link #onSplit(int[])} instead of being
+	 * searched.
+	 *
+	 * @param  depth
+	 *         the number of decisions on the path to the search node
+	 */
+	boolean isSplitting(int depth);
+
+	/**
+	 * Is called for each branch of a search node if
+	 * {@link #isSplitting(int)} returns <code>true</code>.
+	 *
+	 * @param path
+	 *        the decisions on the path to the branch which can be passed to
+	 *        {@link XorMatrixSolver#countSolutions(int[], XorMatrixSplitHandler)}
+	 */
+	void onSplit(int[] path);
+
+}
@@ -0,0 +1,120 @@
+package de.helwich.sudoku.solve;
+
+/**
+ * An immutable snapshot of the counters of an {@link XorMatrix} which show
+ * how often the rules which find removable rows have been applied.
+ *
+ * @see XorMatrix#getStatistics()
+ *
+ * @author Hendrik Helwich
+ */
+public final class XorMatrixStatistics {
+
+	/** the statistics of a matrix which has not counted anything */
+	public static final XorMatrixStatistics EMPTY =
+			new XorMatrixStatistics(0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+	private final long removedNodes;
+	private final long directRows, cascadeRows;
+	private final long conflictRows, pairRows, tripleRows;
+	private final long completeColumns;
+	private final long restores;
+	private final int peakTrailSize;
+
+	XorMatrixStatistics(long removedNodes, long directRows, long cascadeRows,
+			long conflictRows, long pairRows, long tripleRows,
+			long completeColumns, long restores, int peakTrailSize) {
+		this.removedNodes = removedNodes;
+		this.directRows = directRows;
+		this.cascadeRows = cascadeRows;
+		this.conflictRows = conflictRows;
+		this.pairRows = pairRows;
+		this.tripleRows = tripleRows;
+		this.completeColumns = completeColumns;
+		this.restores = restores;
+		this.peakTrailSize = peakTrailSize;
+	}
+
+	/**
+	 * Returns the number of matrix elements which have been removed.
+	 */
+	public long getRemovedNodes() {
+		return removedNodes;
+	}
+
+	/**
+	 * Returns the number of rows which have been removed by a call of
+	 * {@link XorMatrix#removeRow(int)} or {@link XorMatrix#removeRows(int...)}.
+	 */
+	public long getDirectRows() {
+		return directRows;
+	}
+
+	/**
+	 * Returns the number of rows which have been removed because they could
+	 * not be part of a solution after the removal of other rows.
+	 */
+	public long getCascadeRows() {
+		return cascadeRows;
+	}
+
+	/**
+	 * Returns the number of rows which have been found by the rule that a row
+	 * can be removed if it shares a column with each row of a column.
+	 */
+	public long getConflictRows() {
+		return conflictRows;
+	}
+
+	/**
+	 * Returns the number of rows which have been found by combining two
+	 * columns which are covered by the rows of two other columns.
+	 */
+	public long getPairRows() {
+		return pairRows;
+	}
+
+	/**
+	 * Returns the number of rows which have been found by combining three
+	 * columns which are covered by the rows of three other columns.
+	 */
+	public long getTripleRows() {
+		return tripleRows;
+	}
+
+	/**
+	 * Returns the number of columns which have been found to contain all rows
+	 * of another column after the removal of a row. The elements of such
+	 * a column which are in the rows of the other column are removed and its
+	 * other rows are removed.
+	 */
+	public long getCompleteColumns() {
+		return completeColumns;
+	}
+
+	/**
+	 * Returns the number of calls of {@link XorMatrix#restoreNodes(int)} and
+	 * {@link XorMatrix#rollback(int)}.
+	 */
+	public long getRestores() {
+		return restores;
+	}
+
+	/**
+	 * Returns the maximum number of removed elements on the undo trail.
+	 */
+	public int getPeakTrailSize() {
+		return peakTrailSize;
+	}
+
+	@Override
+	public String toString() {
+		return "removed nodes: " + removedNodes + ", direct rows: " + directRows
+				+ ", cascade rows: " + cascadeRows + ", conflict rows: "
+				+ conflictRows + ", pair rows: " + pairRows + ", triple rows: "
+				+ tripleRows + ", complete columns: " + completeColumns
+				+ ", restores: " + restores + ", peak trail size: "
+				+ peakTrailSize;
+	}
+
+}
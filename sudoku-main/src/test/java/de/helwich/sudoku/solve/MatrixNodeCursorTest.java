@@ -0,0 +1,114 @@
+package de.helwich.sudoku.solve;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.helwich.sudoku.solve.MatrixNodeCursor.Direction;
+
+/**
+ * @author Hendrik Helwich
+ */
+public class MatrixNodeCursorTest {
+
+	/** a full 3x3 matrix */
+	MatrixNode[][] nodes;
+	MatrixNodeCursor cursor;
+
+	@Before
+	public void setUp() throws Exception {
+		nodes = new MatrixNode[3][3];
+		for (int r = 0; r < 3; r++)
+			for (int c = 0; c < 3; c++)
+				nodes[r][c] = new MatrixNode(r, c);
+		for (int r = 0; r < 3; r++)
+			for (int c = 0; c < 3; c++) {
+				MatrixNode node = nodes[r][c];
+				node.left = nodes[r][(c + 2) % 3];
+				node.right = nodes[r][(c + 1) % 3];
+				node.up = nodes[(r + 2) % 3][c];
+				node.down = nodes[(r + 1) % 3][c];
+			}
+		cursor = new MatrixNodeCursor();
+	}
+
+	private List<MatrixNode> visit(MatrixNodeCursor cursor) {
+		List<MatrixNode> visited = new ArrayList<MatrixNode>();
+		for (MatrixNode node : cursor)
+			visited.add(node);
+		return visited;
+	}
+
+	@Test
+	public void testDirections() {
+		MatrixNode node = nodes[1][1];
+		assertEquals(Arrays.asList(node, nodes[1][2], nodes[1][0]),
+				visit(cursor.reset(node, Direction.RIGHT)));
+		assertEquals(Arrays.asList(node, nodes[1][0], nodes[1][2]),
+				visit(cursor.reset(node, Direction.LEFT)));
+		assertEquals(Arrays.asList(node, nodes[2][1], nodes[0][1]),
+				visit(cursor.reset(node, Direction.DOWN)));
+		assertEquals(Arrays.asList(node, nodes[0][1], nodes[2][1]),
+				visit(cursor.reset(node, Direction.UP)));
+	}
+
+	@Test
+	public void testSingle() {
+		MatrixNode single = new MatrixNode(0, 0);
+		single.setAdjacents(single, single, single, single);
+		assertEquals(Arrays.asList(single), visit(cursor.reset(single, Direction.RIGHT)));
+		assertEquals(Arrays.asList(single), visit(cursor.reset(single, Direction.UP, true)));
+	}
+
+	@Test
+	public void testSkipRemoved() {
+		MatrixNode node = nodes[1][1];
+		// a node which is not removed is visited
+		assertEquals(Arrays.asList(node, nodes[1][2], nodes[1][0]),
+				visit(cursor.reset(node, Direction.RIGHT, true)));
+		assertTrue(node.remove());
+		assertTrue(nodes[1][2].remove());
+		assertEquals(Arrays.asList(nodes[1][0]),
+				visit(cursor.reset(node, Direction.RIGHT, true)));
+		assertEquals(Arrays.asList(nodes[0][1], nodes[2][1]),
+				visit(cursor.reset(node, Direction.UP, true)));
+		assertEquals(Arrays.asList(nodes[2][2], nodes[0][2]),
+				visit(cursor.reset(nodes[1][2], Direction.DOWN, true)));
+		// remove the last node of the row
+		assertTrue(nodes[1][0].remove());
+		assertFalse(cursor.reset(node, Direction.RIGHT, true).hasNext());
+		assertEquals(Arrays.asList(nodes[2][0], nodes[0][0]),
+				visit(cursor.reset(nodes[1][0], Direction.DOWN, true)));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testNoSuchElement() {
+		cursor.reset(nodes[0][0], Direction.RIGHT);
+		for (int i = 0; i < 4; i++)
+			cursor.next();
+	}
+
+	@Test
+	public void testReuse() {
+		assertSame(cursor, cursor.iterator());
+		cursor.reset(nodes[0][0], Direction.RIGHT).next();
+		assertEquals(Arrays.asList(nodes[2][2], nodes[2][0], nodes[2][1]),
+				visit(cursor.reset(nodes[2][2], Direction.RIGHT)));
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testRowIterable() {
+		List<MatrixNode> visited = new ArrayList<MatrixNode>();
+		for (MatrixNode node : new MatrixNodeRowIterable(nodes[1][2]))
+			visited.add(node);
+		assertEquals(Arrays.asList(nodes[1][2], nodes[1][0], nodes[1][1]), visited);
+	}
+
+}
@@ -0,0 +1,131 @@
+package de.helwich.sudoku.solve;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
+
+/**
+ * @author Hendrik Helwich
+ */
+@RunWith(Parameterized.class)
+public class ParallelXorMatrixSolverTest {
+
+	private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+	private final Backing backing;
+
+	public ParallelXorMatrixSolverTest(Backing backing) {
+		this.backing = backing;
+	}
+
+	@Parameters
+	public static Collection<Object[]> getBackings() {
+		List<Object[]> backings = new ArrayList<Object[]>();
+		for (Backing backing : Backing.values())
+			backings.add(new Object[] { backing });
+		return backings;
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testGrids() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing, 2, 2);
+		String initial = matrix.toString();
+		assertEquals(288, new ParallelXorMatrixSolver(matrix, pool).countSolutions());
+		assertEquals(initial, matrix.toString());
+	}
+
+	@Test
+	public void testCommonPool() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing, 2, 2);
+		ParallelXorMatrixSolver solver = new ParallelXorMatrixSolver(matrix);
+		assertEquals(288, solver.countSolutions());
+		assertTrue(solver.getNodeCount() >= 288);
+	}
+
+	/**
+	 * Counts the solutions with the same solver in several threads at the
+	 * same time.
+	 */
+	@Test
+	public void testConcurrentCounts() throws Exception {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing, 2, 2);
+		final ParallelXorMatrixSolver solver = new ParallelXorMatrixSolver(matrix, pool);
+		final List<Long> counts = Collections.synchronizedList(new ArrayList<Long>());
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10; j++)
+						counts.add(solver.countSolutions());
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(40, counts.size());
+		for (long count : counts)
+			assertEquals(288, count);
+	}
+
+	@Test
+	public void testReducedMatrix() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing, 2, 3);
+		// a 6x6 grid can be completed in 28200960 / 6! ways if its first row
+		// is given
+		String puzzle = "123456";
+		while (puzzle.length() < 36)
+			puzzle += '0';
+		for (int row : SudokuCover.getGivenRows(puzzle, 6))
+			matrix.removeRow(row);
+		ParallelXorMatrixSolver solver = new ParallelXorMatrixSolver(matrix, pool);
+		assertEquals(39168, solver.countSolutions());
+		assertTrue(solver.getNodeCount() >= 39168);
+		// remove some values of the last row
+		matrix.removeRow(SudokuCover.getRow(6, 5, 5, 0));
+		matrix.removeRow(SudokuCover.getRow(6, 5, 5, 1));
+		matrix.removeRow(SudokuCover.getRow(6, 5, 4, 0));
+		matrix.removeRow(SudokuCover.getRow(6, 5, 4, 1));
+		assertEquals(new XorMatrixSolver(matrix).countSolutions(Integer.MAX_VALUE),
+				solver.countSolutions());
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(1);
+		for (int i = 0; i < 500; i++) {
+			XorMatrixFactory factory = new XorMatrixFactory();
+			int height = 2 + random.nextInt(20);
+			int width = 1 + random.nextInt(8);
+			for (int c = 0; c < width; c++) {
+				int[] rows = new int[1 + random.nextInt(height)];
+				for (int j = 0; j < rows.length; j++)
+					rows[j] = j * height / rows.length + random.nextInt(height / rows.length);
+				factory.addXorColumn(rows);
+			}
+			XorMatrix matrix = factory.createXorMatrix(backing);
+			assertEquals(new XorMatrixSolver(matrix).countSolutions(Integer.MAX_VALUE),
+					new ParallelXorMatrixSolver(matrix, pool).countSolutions());
+		}
+	}
+
+}
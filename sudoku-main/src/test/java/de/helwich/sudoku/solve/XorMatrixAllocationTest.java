@@ -0,0 +1,71 @@
+package de.helwich.sudoku.solve;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
+
+/**
+ * Checks that removing and restoring rows does not create objects once the
+ * reusable storage of a matrix has grown to its maximum size. The test is
+ * skipped if the virtual machine can not measure the allocated memory of a
+ * thread.
+ *
+ * @author Hendrik Helwich
+ */
+public class XorMatrixAllocationTest {
+
+	private static final int WARMUP = 1000;
+	private static final int CYCLES = 10000;
+	/** the bytes which are allowed for the measurement itself */
+	private static final long MAX_BYTES = 1024;
+
+	@Test
+	public void testNodes() {
+		assertZeroAllocation(Backing.NODES);
+	}
+
+	@Test
+	public void testArrays() {
+		assertZeroAllocation(Backing.ARRAYS);
+	}
+
+	private static void assertZeroAllocation(Backing backing) {
+		ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(bean.isThreadAllocatedMemorySupported());
+		bean.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		int[] rows = SudokuCover.getGivenRows(SudokuCover.HARD, 9);
+		// the first half of the givens is removed, so each cycle cascades
+		// on a reduced matrix
+		for (int i = 0; i < rows.length / 2; i++)
+			matrix.removeRow(rows[i]);
+		for (int i = 0; i < WARMUP; i++)
+			propagate(matrix, rows, i);
+		long allocated = bean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < CYCLES; i++)
+			propagate(matrix, rows, i);
+		allocated = bean.getThreadAllocatedBytes(threadId) - allocated;
+		assertTrue(backing + " allocated " + allocated + " bytes in "
+				+ CYCLES + " cycles", allocated < MAX_BYTES);
+	}
+
+	/**
+	 * Removes one of the second half of the given rows and restores the
+	 * matrix.
+	 */
+	private static void propagate(XorMatrix matrix, int[] rows, int cycle) {
+		int half = rows.length / 2;
+		int mark = matrix.checkpoint();
+		matrix.removeRow(rows[half + cycle % (rows.length - half)]);
+		matrix.rollback(mark);
+	}
+
+}
@@ -0,0 +1,103 @@
+package de.helwich.sudoku.solve;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import de.helwich.sudoku.solve.XorMatrix.PropagationOrder;
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
+
+/**
+ * @author Hendrik Helwich
+ */
+public class XorMatrixPoolTest {
+
+	@Test
+	public void testAcquire() {
+		for (Backing backing : Backing.values()) {
+			XorMatrix template = SudokuCover.createXorMatrix(backing);
+			String initial = template.toString();
+			int[] rows = SudokuCover.getGivenRows(SudokuCover.HARD, 9);
+			// the template is copied in its initial state
+			template.removeRows(rows);
+			XorMatrixPool pool = new XorMatrixPool(template, 2);
+			XorMatrix first = pool.acquire();
+			XorMatrix second = pool.acquire();
+			assertNotSame(first, second);
+			assertEquals(initial, first.toString());
+			assertEquals(0, pool.getHitCount());
+			first.removeRows(rows);
+			first.checkpoint();
+			pool.release(first);
+			assertEquals(1, pool.getIdleCount());
+			assertSame(first, pool.acquire());
+			assertEquals(initial, first.toString());
+			assertEquals(0, first.getCheckpointCount());
+			assertEquals(3, pool.getAcquireCount());
+			assertEquals(1, pool.getHitCount());
+			assertEquals(1.0 / 3, pool.getHitRate(), 1e-9);
+			assertEquals(1, pool.getResetCount());
+			assertTrue(pool.getResetNanos() > 0);
+			pool.resetMetrics();
+			assertEquals(0, pool.getHitRate(), 0);
+			assertEquals(0, pool.getAverageResetNanos());
+		}
+	}
+
+	@Test
+	public void testCapacity() {
+		XorMatrixPool pool = new XorMatrixPool(SudokuCover.createXorMatrix(Backing.BITSETS), 1);
+		XorMatrix first = pool.acquire();
+		XorMatrix second = pool.acquire();
+		pool.release(first);
+		pool.release(second);
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(2, pool.getResetCount());
+	}
+
+	@Test
+	public void testSettings() {
+		XorMatrix template = SudokuCover.createXorMatrix(Backing.ARRAYS);
+		template.setMaxInclusionSize(3);
+		XorMatrixPool pool = new XorMatrixPool(template, 1);
+		XorMatrix matrix = pool.acquire();
+		assertEquals(3, matrix.getMaxInclusionSize());
+		matrix.setMaxInclusionSize(1);
+		matrix.setPropagationOrder(PropagationOrder.BREADTH_FIRST);
+		matrix.setStatisticsEnabled(true);
+		matrix.addChangeHandler(new XorMatrixChangeHandler() {
+			public void onRemoveRow(int row) {
+				fail("handler of a released matrix is notified");
+			}
+		});
+		pool.release(matrix);
+		matrix = pool.acquire();
+		assertEquals(3, matrix.getMaxInclusionSize());
+		assertEquals(PropagationOrder.DEPTH_FIRST, matrix.getPropagationOrder());
+		assertFalse(matrix.isStatisticsEnabled());
+		matrix.removeRow(0);
+	}
+
+	@Test
+	public void testReleaseTwice() {
+		XorMatrixPool pool = new XorMatrixPool(SudokuCover.createXorMatrix(Backing.NODES), 2);
+		XorMatrix matrix = pool.acquire();
+		pool.release(matrix);
+		matrix.removeRow(0);
+		try {
+			pool.release(matrix);
+			fail("matrix must be rejected");
+		} catch (IllegalStateException e) {
+		}
+		// the idle matrix is not reset by the second release
+		assertFalse(matrix.containsRow(0));
+		assertEquals(1, pool.getResetCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReleaseForeign() {
+		XorMatrixPool pool = new XorMatrixPool(SudokuCover.createXorMatrix(Backing.NODES), 2);
+		pool.release(SudokuCover.createXorMatrix(Backing.NODES));
+	}
+
+}
@@ -0,0 +1,145 @@
+package de.helwich.sudoku.solve;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.helwich.sudoku.solve.XorMatrix.PropagationOrder;
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
+
+/**
+ * @author Hendrik Helwich
+ */
+@RunWith(Parameterized.class)
+public class XorMatrixSnapshotTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Backing backing;
+
+	public XorMatrixSnapshotTest(Backing backing) {
+		this.backing = backing;
+	}
+
+	@Parameters
+	public static Collection<Object[]> getBackings() {
+		List<Object[]> backings = new ArrayList<Object[]>();
+		for (Backing backing : Backing.values())
+			backings.add(new Object[] { backing });
+		return backings;
+	}
+
+	@Test
+	public void testTemplate() throws IOException {
+		File file = folder.newFile("template.xor");
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		XorMatrixSnapshot.write(matrix, file);
+		for (Backing loadBacking : Backing.values()) {
+			XorMatrix loaded = XorMatrixSnapshot.read(file, loadBacking);
+			assertEquals(matrix.toString(), loaded.toString());
+			assertEquals(0, loaded.getCheckpointCount());
+			// the loaded matrix propagates like a new matrix
+			XorMatrix expected = SudokuCover.createXorMatrix(backing);
+			int[] rows = SudokuCover.getGivenRows(SudokuCover.HARD, 9);
+			expected.removeRows(rows);
+			loaded.removeRows(rows);
+			assertEquals(expected.toString(), loaded.toString());
+		}
+		// the storage of the loaded matrix is chosen by the factory
+		XorMatrixFactory factory = new XorMatrixFactory();
+		SudokuCover.addColumns(factory, 3, 3);
+		XorMatrix loaded = XorMatrixSnapshot.read(file);
+		assertSame(factory.createXorMatrix().getClass(), loaded.getClass());
+		assertEquals(matrix.toString(), loaded.toString());
+	}
+
+	@Test
+	public void testReducedMatrix() throws IOException {
+		File file = folder.newFile("reduced.xor");
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		matrix.setMaxInclusionSize(3);
+		matrix.setPropagationOrder(PropagationOrder.BREADTH_FIRST);
+		int[] rows = SudokuCover.getGivenRows(SudokuCover.HARD, 9);
+		List<String> states = new ArrayList<String>();
+		matrix.checkpoint();
+		states.add(matrix.toString());
+		for (int i = 0; i < rows.length; i++) {
+			if (i % 8 == 0) {
+				matrix.checkpoint();
+				states.add(matrix.toString());
+			}
+			matrix.removeRow(rows[i]);
+		}
+		XorMatrixSnapshot.write(matrix, file);
+		for (Backing loadBacking : Backing.values()) {
+			XorMatrix loaded = XorMatrixSnapshot.read(file, loadBacking);
+			assertEquals(matrix.toString(), loaded.toString());
+			assertEquals(3, loaded.getMaxInclusionSize());
+			assertEquals(PropagationOrder.BREADTH_FIRST, loaded.getPropagationOrder());
+			for (int row = 0; row < matrix.getRowCount(); row++)
+				assertEquals(matrix.getRowWidth(row), loaded.getRowWidth(row));
+			for (int column = 0; column < matrix.getColumnCount(); column++)
+				assertEquals(matrix.getColumnHeight(column), loaded.getColumnHeight(column));
+			// the loaded matrix can be restored to the same states
+			assertEquals(states.size(), loaded.getCheckpointCount());
+			for (int mark = states.size() - 1; mark >= 0; mark--) {
+				loaded.rollback(mark);
+				assertEquals(states.get(mark), loaded.toString());
+			}
+		}
+	}
+
+	@Test
+	public void testByteBuffer() throws IOException {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing, 2, 2);
+		matrix.removeRow(SudokuCover.getRow(4, 0, 0, 0));
+		ByteBuffer buffer = XorMatrixSnapshot.toByteBuffer(matrix);
+		XorMatrix loaded = XorMatrixSnapshot.read(buffer, backing);
+		assertEquals(0, buffer.position());
+		assertEquals(matrix.toString(), loaded.toString());
+		loaded.restoreNodes(0);
+		assertEquals(SudokuCover.createXorMatrix(backing, 2, 2).toString(),
+				loaded.toString());
+	}
+
+	@Test
+	public void testInvalidSnapshot() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing, 2, 2);
+		matrix.removeRow(SudokuCover.getRow(4, 0, 0, 0));
+		ByteBuffer buffer = XorMatrixSnapshot.toByteBuffer(matrix);
+		ByteBuffer wrongMagic = XorMatrixSnapshot.toByteBuffer(matrix);
+		wrongMagic.putInt(0, 0);
+		assertInvalid(wrongMagic);
+		ByteBuffer truncated = buffer.duplicate();
+		truncated.limit(buffer.limit() - 4);
+		assertInvalid(truncated);
+		// the last trail node is stored twice
+		ByteBuffer duplicateNode = XorMatrixSnapshot.toByteBuffer(matrix);
+		int trailStart = duplicateNode.limit() - 4 * matrix.getTrailSize();
+		duplicateNode.putInt(trailStart, duplicateNode.getInt(trailStart + 4));
+		assertInvalid(duplicateNode);
+	}
+
+	private void assertInvalid(ByteBuffer buffer) {
+		try {
+			XorMatrixSnapshot.read(buffer, backing);
+			fail("snapshot must be rejected");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+}
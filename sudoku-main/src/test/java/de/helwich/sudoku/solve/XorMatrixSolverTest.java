@@ -0,0 +1,221 @@
+package de.helwich.sudoku.solve;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
+
+/**
+ * @author Hendrik Helwich
+ */
+@RunWith(Parameterized.class)
+public class XorMatrixSolverTest {
+
+	private final Backing backing;
+
+	public XorMatrixSolverTest(Backing backing) {
+		this.backing = backing;
+	}
+
+	@Parameters
+	public static Collection<Object[]> getBackings() {
+		List<Object[]> backings = new ArrayList<Object[]>();
+		for (Backing backing : Backing.values())
+			backings.add(new Object[] { backing });
+		return backings;
+	}
+
+	@Test
+	public void testSudoku() {
+		for (String puzzle : new String[] { SudokuCover.EASY,
+				SudokuCover.HARD, SudokuCover.MINIMAL }) {
+			XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+			for (int row : SudokuCover.getGivenRows(puzzle, 9))
+				matrix.removeRow(row);
+			String reduced = matrix.toString();
+			SolutionCollector solutions = new SolutionCollector();
+			assertEquals(1, new XorMatrixSolver(matrix).solve(solutions));
+			assertEquals(1, solutions.size());
+			assertSudokuSolution(puzzle, solutions.get(0));
+			// the matrix is restored after the search
+			assertEquals(reduced, matrix.toString());
+		}
+	}
+
+	@Test
+	public void testNoSolution() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		// two equal values in the first row
+		String puzzle = "11" + SudokuCover.HARD.substring(2);
+		for (int row : SudokuCover.getGivenRows(puzzle, 9))
+			matrix.removeRow(row);
+		assertEquals(0, new XorMatrixSolver(matrix).solve(new SolutionCollector()));
+		assertEquals(0, new XorMatrixSolver(matrix).countSolutions());
+	}
+
+	@Test
+	public void testLimit() {
+		// there are 288 different 4x4 sudoku grids
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing, 2, 2);
+		XorMatrixSolver solver = new XorMatrixSolver(matrix);
+		SolutionCollector solutions = new SolutionCollector();
+		assertEquals(288, solver.solve(solutions));
+		assertEquals(288, new HashSet<List<Integer>>(solutions).size());
+		solutions.clear();
+		assertEquals(5, solver.solve(solutions, 5));
+		assertEquals(5, solutions.size());
+	}
+
+	@Test
+	public void testCountSolutions() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		XorMatrixSolver solver = new XorMatrixSolver(matrix);
+		int[] rows = SudokuCover.getGivenRows(SudokuCover.HARD, 9);
+		int mark = matrix.checkpoint();
+		// without the last given the puzzle has more solutions
+		for (int i = 0; i < rows.length - 8; i++)
+			matrix.removeRow(rows[i]);
+		assertEquals(2, solver.countSolutions());
+		int countNodes = solver.getNodeCount();
+		assertTrue(countNodes > 0);
+		assertEquals(3, solver.countSolutions(3));
+		assertTrue(solver.getNodeCount() >= countNodes);
+		for (int i = rows.length - 8; i < rows.length; i++)
+			matrix.removeRow(rows[i]);
+		assertEquals(1, solver.countSolutions());
+		countNodes = solver.getNodeCount();
+		// the count visits the same nodes as the enumeration of all solutions
+		assertEquals(1, solver.solve(new SolutionCollector()));
+		assertEquals(countNodes, solver.getNodeCount());
+		matrix.rollback(mark);
+		// the empty grid has many solutions
+		assertEquals(2, solver.countSolutions());
+		assertTrue(solver.getNodeCount() < 100);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalLimit() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing, 2, 2);
+		new XorMatrixSolver(matrix).solve(new SolutionCollector(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullHandler() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing, 2, 2);
+		new XorMatrixSolver(matrix).solve(null);
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(0);
+		for (int i = 0; i < 2000; i++) {
+			int height = 2 + random.nextInt(11);
+			int width = 1 + random.nextInt(7);
+			List<int[]> columns = new ArrayList<int[]>();
+			XorMatrixFactory factory = new XorMatrixFactory();
+			for (int c = 0; c < width; c++) {
+				List<Integer> rows = new ArrayList<Integer>();
+				for (int r = 0; r < height; r++)
+					if (random.nextInt(3) == 0)
+						rows.add(r);
+				if (rows.isEmpty())
+					rows.add(random.nextInt(height));
+				int[] column = new int[rows.size()];
+				for (int j = 0; j < column.length; j++)
+					column[j] = rows.get(j);
+				columns.add(column);
+				factory.addXorColumn(column);
+			}
+			XorMatrix matrix = factory.createXorMatrix(backing);
+			String initial = matrix.toString();
+			SolutionCollector solutions = new SolutionCollector();
+			new XorMatrixSolver(matrix).solve(solutions);
+			assertEquals(getSolutions(columns, height),
+					new HashSet<List<Integer>>(solutions));
+			assertEquals(solutions.size(), new HashSet<List<Integer>>(solutions).size());
+			assertEquals(initial, matrix.toString());
+		}
+	}
+
+	/**
+	 * Calculates the solutions by testing all subsets of the rows.
+	 */
+	private static Set<List<Integer>> getSolutions(List<int[]> columns, int height) {
+		Set<List<Integer>> solutions = new HashSet<List<Integer>>();
+		subsets:
+		for (int set = 0; set < 1 << height; set++) {
+			int used = 0;
+			for (int[] column : columns) {
+				int count = 0;
+				for (int row : column)
+					if ((set >> row & 1) != 0)
+						count++;
+				if (count != 1)
+					continue subsets;
+				for (int row : column)
+					used |= 1 << row;
+			}
+			if ((set & ~used) != 0) // set contains a row which is not in the matrix
+				continue;
+			List<Integer> solution = new ArrayList<Integer>();
+			for (int row = 0; row < height; row++)
+				if ((set >> row & 1) != 0)
+					solution.add(row);
+			solutions.add(solution);
+		}
+		return solutions;
+	}
+
+	private static void assertSudokuSolution(String puzzle, List<Integer> rows) {
+		assertEquals(81, rows.size());
+		int[] values = new int[81];
+		Arrays.fill(values, -1);
+		for (int row : rows) {
+			int cell = row / 9;
+			assertEquals(-1, values[cell]);
+			values[cell] = row % 9;
+		}
+		for (int i = 0; i < 81; i++) {
+			char c = puzzle.charAt(i);
+			if (c != '0')
+				assertEquals(c - '1', values[i]);
+		}
+		for (int i = 0; i < 9; i++) {
+			int rowValues = 0, columnValues = 0, boxValues = 0;
+			for (int j = 0; j < 9; j++) {
+				rowValues |= 1 << values[i * 9 + j];
+				columnValues |= 1 << values[j * 9 + i];
+				boxValues |= 1 << values[(i / 3 * 3 + j / 3) * 9 + i % 3 * 3 + j % 3];
+			}
+			assertEquals(0x1ff, rowValues);
+			assertEquals(0x1ff, columnValues);
+			assertEquals(0x1ff, boxValues);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class SolutionCollector extends ArrayList<List<Integer>>
+			implements XorMatrixSolutionHandler {
+
+		public void onSolution(int[] rows) {
+			List<Integer> solution = new ArrayList<Integer>();
+			for (int row : rows)
+				solution.add(row);
+			add(solution);
+		}
+
+	}
+
+}
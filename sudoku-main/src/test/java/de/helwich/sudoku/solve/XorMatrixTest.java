@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -14,18 +15,37 @@ import java.util.Set;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
-import org.junit.Ignore;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import de.helwich.sudoku.solve.XorMatrixFactory.Backing;
 
 /**
  * 
  * 
  * @author Hendrik Helwich
  */
+@RunWith(Parameterized.class)
 public class XorMatrixTest {
 
 	private static final Random random = new Random();
 
+	private final Backing backing;
+
+	public XorMatrixTest(Backing backing) {
+		this.backing = backing;
+	}
+
+	@Parameters
+	public static Collection<Object[]> getBackings() {
+		List<Object[]> backings = new ArrayList<Object[]>();
+		for (Backing backing : Backing.values())
+			backings.add(new Object[] { backing });
+		return backings;
+	}
+
 	@BeforeClass
 	public static void setUpBeforeClass() throws Exception {
 	}
@@ -35,26 +55,24 @@ public class XorMatrixTest {
 	}
 	
 	@Test
-	@Ignore
 	public void test3() {
 		XorMatrixFactory factory = new XorMatrixFactory();
 		factory.addXorColumn(0,1,2);
 		factory.addXorColumn(3,4,5);
 		factory.addXorColumn(0,3);
 		factory.addXorColumn(1,4,6);
-		XorMatrix matrix = factory.createXorMatrix();
+		XorMatrix matrix = factory.createXorMatrix(backing);
 		removeRow(matrix, 6,  2, 5);
 	}
 	
 	@Test
-	@Ignore
 	public void test2() {
 		XorMatrixFactory factory = new XorMatrixFactory();
 		factory.addXorColumn(2,3,4,5,6);
 		factory.addXorColumn(9,10,11,12,13);
 		factory.addXorColumn(0,3,7,10,14);
 		factory.addXorColumn(1,5,8,12,15);
-		XorMatrix matrix = factory.createXorMatrix();
+		XorMatrix matrix = factory.createXorMatrix(backing);
 		removeRow(matrix, 0);
 		removeRow(matrix, 1);
 		removeRow(matrix, 7);
@@ -64,6 +82,57 @@ public class XorMatrixTest {
 		// now rows 2,4,6,9,11,13 should be removed by the matrix
 	}
 	
+	@Test
+	public void testInclusionSize() {
+		XorMatrixFactory factory = new XorMatrixFactory();
+		factory.addXorColumn(0,1,2);
+		factory.addXorColumn(3,4,5);
+		factory.addXorColumn(0,3);
+		factory.addXorColumn(1,4,6);
+		XorMatrix matrix = factory.createXorMatrix(backing);
+		assertEquals(XorMatrix.DEFAULT_INCLUSION_SIZE, matrix.getMaxInclusionSize());
+		// the pair of columns (0,3), (1,4) is not checked
+		matrix.setMaxInclusionSize(1);
+		assertEquals(1, matrix.copy().getMaxInclusionSize());
+		removeRow(matrix, 6);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalInclusionSize() {
+		SudokuCover.createXorMatrix(backing, 2, 2).setMaxInclusionSize(4);
+	}
+
+	@Test
+	public void testAddXorColumns() {
+		int[] offsets = SudokuCover.getColumnOffsets(2, 3);
+		int[] rows = SudokuCover.getColumnRows(2, 3);
+		XorMatrixFactory factory = new XorMatrixFactory();
+		for (int i = 0; i + 1 < offsets.length; i++)
+			factory.addXorColumn(Arrays.copyOfRange(rows, offsets[i], offsets[i + 1]));
+		XorMatrix expected = factory.createXorMatrix(backing);
+		// add the columns in two parts
+		int split = offsets[offsets.length / 2];
+		factory.addXorColumns(Arrays.copyOf(offsets, offsets.length / 2 + 1), rows);
+		factory.addXorColumns(Arrays.copyOfRange(offsets, offsets.length / 2,
+				offsets.length), rows);
+		XorMatrix matrix = factory.createXorMatrix(backing);
+		assertEquals(expected.toString(), matrix.toString());
+		assertArrayEquals(expected.columnOffsets, matrix.columnOffsets);
+		assertArrayEquals(expected.columnRows, matrix.columnRows);
+		assertEquals(split, matrix.columnOffsets[offsets.length / 2]);
+		for (int row : SudokuCover.getGivenRows("123456", 6)) {
+			expected.removeRow(row);
+			matrix.removeRow(row);
+		}
+		assertEquals(expected.toString(), matrix.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddEmptyXorColumns() {
+		new XorMatrixFactory().addXorColumns(new int[] { 0, 2, 2, 3 },
+				new int[] { 0, 1, 2 });
+	}
+
 	@Test
 	public void testSingle() {
 		XorMatrixFactory factory = new XorMatrixFactory();
@@ -72,11 +141,435 @@ public class XorMatrixTest {
 		factory.addXorColumn(2,3);
 		factory.addXorColumn(1,4);
 		factory.addXorColumn(1,3);
-		XorMatrix matrix = factory.createXorMatrix();
+		XorMatrix matrix = factory.createXorMatrix(backing);
 		System.out.println(matrix);
 		removeRow(matrix, 2, 1);
 	}
 	
+	@Test
+	public void testCheckpoint() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		String initial = matrix.toString();
+		int[] rows = SudokuCover.getGivenRows(SudokuCover.EASY, 9);
+		int outer = matrix.checkpoint();
+		assertEquals(0, outer);
+		for (int i = 0; i < rows.length / 2; i++)
+			matrix.removeRow(rows[i]);
+		String half = matrix.toString();
+		int inner = matrix.checkpoint();
+		assertEquals(1, inner);
+		for (int i = rows.length / 2; i < rows.length; i++)
+			matrix.removeRow(rows[i]);
+		assertFalse(half.equals(matrix.toString()));
+		matrix.rollback(inner);
+		assertEquals(half, matrix.toString());
+		assertEquals(1, matrix.getCheckpointCount());
+		// a checkpoint can be reopened after a rollback
+		inner = matrix.checkpoint();
+		matrix.removeRow(rows[rows.length - 1]);
+		matrix.rollback(outer);
+		assertEquals(initial, matrix.toString());
+		assertEquals(0, matrix.getCheckpointCount());
+		for (int row : rows)
+			assertTrue(matrix.containsRow(row));
+	}
+
+	@Test
+	public void testCopy() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		String initial = matrix.toString();
+		int[] rows = SudokuCover.getGivenRows(SudokuCover.HARD, 9);
+		int mark = matrix.checkpoint();
+		for (int i = 0; i < rows.length / 2; i++)
+			matrix.removeRow(rows[i]);
+		String half = matrix.toString();
+		XorMatrix copy = matrix.copy();
+		assertEquals(half, copy.toString());
+		assertEquals(matrix.getCheckpointCount(), copy.getCheckpointCount());
+		for (int row = 0; row < matrix.getRowCount(); row++) {
+			assertEquals(matrix.containsRow(row), copy.containsRow(row));
+			assertEquals(matrix.getRowWidth(row), copy.getRowWidth(row));
+		}
+		// both matrices change in the same way
+		for (int i = rows.length / 2; i < rows.length; i++)
+			assertEquals(matrix.removeRow(rows[i]), copy.removeRow(rows[i]));
+		String full = matrix.toString();
+		assertEquals(full, copy.toString());
+		// the copy can be restored to the states before the copy
+		copy.rollback(mark);
+		assertEquals(initial, copy.toString());
+		// changes of the copy do not change the original matrix
+		copy.removeRow(rows[0]);
+		assertEquals(full, matrix.toString());
+		matrix.rollback(mark);
+		assertEquals(initial, matrix.toString());
+	}
+
+	@Test
+	public void testRemoveRows() {
+		for (String puzzle : new String[] { SudokuCover.EASY,
+				SudokuCover.HARD, SudokuCover.MINIMAL }) {
+			int[] rows = SudokuCover.getGivenRows(puzzle, 9);
+			XorMatrix single = SudokuCover.createXorMatrix(backing);
+			for (int row : rows)
+				single.removeRow(row);
+			XorMatrix batch = SudokuCover.createXorMatrix(backing);
+			String initial = batch.toString();
+			final Set<Integer> notified = new HashSet<Integer>();
+			batch.addChangeHandler(new XorMatrixChangeHandler() {
+				public void onRemoveRow(int row) {
+					assertTrue(notified.add(row));
+				}
+			});
+			int mark = batch.checkpoint();
+			batch.removeRows(rows);
+			// the same rows are removed
+			for (int row = 0; row < batch.getRowCount(); row++) {
+				assertEquals(single.containsRow(row), batch.containsRow(row));
+				assertEquals(!batch.containsRow(row), notified.contains(row));
+			}
+			assertSizes(batch);
+			// rows which are removed before are ignored
+			batch.removeRows(rows);
+			batch.rollback(mark);
+			assertEquals(initial, batch.toString());
+		}
+	}
+
+	/**
+	 * Removes two rows of a matrix in which the remaining rows depend on the
+	 * order of the removals. A batch removal must leave the same matrix as
+	 * the removal of the rows one by one and notify the batch handlers once.
+	 */
+	@Test
+	public void testRemoveRowsOrder() {
+		XorMatrix single = createOrderMatrix();
+		XorMatrix batch = createOrderMatrix();
+		final List<Integer> batches = new ArrayList<Integer>();
+		batch.addBatchChangeHandler(new XorMatrixBatchChangeHandler() {
+			public void onRemoveRows(int[] rows, int count) {
+				batches.add(count);
+			}
+		});
+		single.removeRow(0);
+		int matrixStateId = single.removeRow(3);
+		assertEquals(matrixStateId, batch.removeRows(0, 3));
+		for (int row = 0; row < batch.getRowCount(); row++)
+			assertEquals(single.containsRow(row), batch.containsRow(row));
+		assertEquals(single.toString(), batch.toString());
+		assertEquals(1, batches.size());
+	}
+
+	private XorMatrix createOrderMatrix() {
+		XorMatrixFactory factory = new XorMatrixFactory();
+		factory.addXorColumn(2, 3, 4);
+		factory.addXorColumn(1, 2);
+		factory.addXorColumn(0, 1, 4);
+		factory.addXorColumn(3);
+		factory.addXorColumn(0, 2, 3);
+		return factory.createXorMatrix(backing);
+	}
+
+	@Test
+	public void testReset() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		String initial = matrix.toString();
+		int[] rows = SudokuCover.getGivenRows(SudokuCover.HARD, 9);
+		matrix.checkpoint();
+		matrix.removeRows(rows);
+		matrix.checkpoint();
+		matrix.removeRow(rows[0] + 1);
+		matrix.reset();
+		assertEquals(initial, matrix.toString());
+		assertEquals(0, matrix.getCheckpointCount());
+		assertEquals(0, matrix.getTrailSize());
+		for (int row = 0; row < matrix.getRowCount(); row++)
+			assertEquals(4, matrix.getRowWidth(row));
+		for (int column = 0; column < matrix.getColumnCount(); column++)
+			assertEquals(9, matrix.getColumnHeight(column));
+		// the matrix propagates like a new matrix
+		XorMatrix expected = SudokuCover.createXorMatrix(backing);
+		assertEquals(expected.removeRows(rows), matrix.removeRows(rows));
+		assertEquals(expected.toString(), matrix.toString());
+		matrix.restoreNodes(0);
+		assertEquals(initial, matrix.toString());
+	}
+
+	@Test
+	public void testSameAsNodes() {
+		for (String puzzle : new String[] { SudokuCover.EASY,
+				SudokuCover.HARD, SudokuCover.MINIMAL }) {
+			XorMatrix expected = SudokuCover.createXorMatrix(Backing.NODES);
+			XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+			expected.setMaxInclusionSize(3);
+			matrix.setMaxInclusionSize(3);
+			for (int row : SudokuCover.getGivenRows(puzzle, 9)) {
+				expected.removeRow(row);
+				matrix.removeRow(row);
+				assertSameState(expected, matrix);
+			}
+			assertSizes(matrix);
+		}
+	}
+
+	/**
+	 * Removes random rows beyond the givens and rolls them back. The storages
+	 * have the same state after each step, also if a removal leaves a column
+	 * without a live row.
+	 */
+	@Test
+	public void testSameAsNodesRandomWalk() {
+		Random random = new Random(0);
+		XorMatrix expected = SudokuCover.createXorMatrix(Backing.NODES);
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		int[] rows = SudokuCover.getGivenRows(SudokuCover.HARD, 9);
+		expected.removeRows(rows);
+		matrix.removeRows(rows);
+		int consistent = 0, uncovered = 0;
+		for (int step = 0; step < 5000; step++) {
+			if (matrix.getCheckpointCount() > 0
+					&& (hasUncoveredColumn(expected) || random.nextInt(3) == 0)) {
+				int mark = matrix.getCheckpointCount() - 1;
+				expected.rollback(mark);
+				matrix.rollback(mark);
+			} else {
+				List<Integer> live = new ArrayList<Integer>();
+				for (int r = 0; r < expected.getRowCount(); r++)
+					if (expected.containsRow(r))
+						live.add(r);
+				if (live.isEmpty())
+					continue;
+				int row = live.get(random.nextInt(live.size()));
+				expected.checkpoint();
+				matrix.checkpoint();
+				expected.removeRow(row);
+				matrix.removeRow(row);
+			}
+			assertSameState(expected, matrix);
+			assertSizes(matrix);
+			if (hasUncoveredColumn(expected))
+				uncovered++;
+			else
+				consistent++;
+		}
+		assertTrue(consistent > 1000);
+		assertTrue(uncovered > 1000);
+	}
+
+	/**
+	 * Checks that the given matrices have the same live rows, the same sizes
+	 * and the same undo trail.
+	 */
+	private static void assertSameState(XorMatrix expected, XorMatrix matrix) {
+		for (int r = 0; r < matrix.getRowCount(); r++) {
+			assertEquals(expected.containsRow(r), matrix.containsRow(r));
+			assertEquals(expected.getRowWidth(r), matrix.getRowWidth(r));
+		}
+		for (int c = 0; c < matrix.getColumnCount(); c++)
+			assertEquals(expected.getColumnHeight(c), matrix.getColumnHeight(c));
+		assertEquals(expected.getTrailSize(), matrix.getTrailSize());
+		for (int i = 0; i < matrix.getTrailSize(); i++)
+			assertEquals(expected.getTrailNode(i), matrix.getTrailNode(i));
+	}
+
+	/**
+	 * Returns <code>true</code> if a column has no live row, so the matrix
+	 * has no solution.
+	 */
+	private static boolean hasUncoveredColumn(XorMatrix matrix) {
+		columns:
+		for (int column = 0; column < matrix.getColumnCount(); column++) {
+			for (int i = matrix.columnOffsets[column]; i < matrix.columnOffsets[column + 1]; i++)
+				if (matrix.containsRow(matrix.columnRows[i]))
+					continue columns;
+			return true;
+		}
+		return false;
+	}
+
+	@Test
+	public void testChosenBacking() {
+		XorMatrixFactory factory = new XorMatrixFactory();
+		SudokuCover.addColumns(factory, 3, 3);
+		assertTrue(factory.createXorMatrix() instanceof BitsetXorMatrix);
+		// 1024 columns
+		SudokuCover.addColumns(factory, 4, 4);
+		assertTrue(factory.createXorMatrix() instanceof NodeXorMatrix);
+	}
+
+	@Test
+	public void testBatchChangeHandler() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		final List<Integer> removed = new ArrayList<Integer>();
+		final List<List<Integer>> batches = new ArrayList<List<Integer>>();
+		XorMatrixChangeHandler handler = new XorMatrixChangeHandler() {
+			public void onRemoveRow(int row) {
+				removed.add(row);
+			}
+		};
+		XorMatrixBatchChangeHandler batchHandler = new XorMatrixBatchChangeHandler() {
+			public void onRemoveRows(int[] rows, int count) {
+				assertTrue(count > 0);
+				batches.add(convIntArrayToList(Arrays.copyOf(rows, count)));
+			}
+		};
+		matrix.addChangeHandler(handler);
+		matrix.addBatchChangeHandler(batchHandler);
+		int mark = matrix.checkpoint();
+		for (int row : SudokuCover.getGivenRows(SudokuCover.HARD, 9)) {
+			removed.clear();
+			batches.clear();
+			matrix.removeRow(row);
+			// one batch with the same rows in the same order per call
+			if (removed.isEmpty())
+				assertTrue(batches.isEmpty());
+			else
+				assertEquals(Collections.singletonList(removed), batches);
+		}
+		assertTrue(matrix.removeBatchChangeHandler(batchHandler));
+		assertFalse(matrix.removeBatchChangeHandler(batchHandler));
+		matrix.rollback(mark);
+		batches.clear();
+		matrix.removeRows(SudokuCover.getGivenRows(SudokuCover.HARD, 9));
+		assertTrue(batches.isEmpty());
+	}
+
+	@Test
+	public void testPropagationOrder() {
+		int[] rows = SudokuCover.getGivenRows(SudokuCover.HARD, 9);
+		XorMatrix depthFirst = SudokuCover.createXorMatrix(backing);
+		XorMatrix breadthFirst = SudokuCover.createXorMatrix(backing);
+		assertEquals(XorMatrix.PropagationOrder.DEPTH_FIRST,
+				depthFirst.getPropagationOrder());
+		breadthFirst.setPropagationOrder(XorMatrix.PropagationOrder.BREADTH_FIRST);
+		assertEquals(0, depthFirst.getPeakQueueDepth());
+		for (int row : rows) {
+			depthFirst.removeRow(row);
+			breadthFirst.removeRow(row);
+		}
+		for (int row = 0; row < depthFirst.getRowCount(); row++)
+			assertEquals(depthFirst.containsRow(row), breadthFirst.containsRow(row));
+		assertTrue(depthFirst.getPeakQueueDepth() > 1);
+		assertTrue(breadthFirst.getPeakQueueDepth() > 1);
+		assertEquals(XorMatrix.PropagationOrder.BREADTH_FIRST,
+				breadthFirst.copy().getPropagationOrder());
+		depthFirst.resetPeakQueueDepth();
+		assertEquals(0, depthFirst.getPeakQueueDepth());
+	}
+
+	@Test
+	public void testLargeCascade() {
+		// 15625 rows
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing, 5, 5);
+		int mark = matrix.checkpoint();
+		// keep one value of each cell in the first row
+		for (int column = 0; column < 25; column++)
+			for (int value = 0; value < 25; value++)
+				if (value != column)
+					matrix.removeRow(SudokuCover.getRow(25, 0, column, value));
+		for (int column = 0; column < 25; column++)
+			assertTrue(matrix.containsRow(SudokuCover.getRow(25, 0, column, column)));
+		assertTrue(matrix.getPeakQueueDepth() <= matrix.getRowCount());
+		assertSizes(matrix);
+		matrix.rollback(mark);
+		for (int row = 0; row < matrix.getRowCount(); row++)
+			assertTrue(matrix.containsRow(row));
+	}
+
+	@Test
+	public void testStatistics() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		matrix.setMaxInclusionSize(3);
+		assertFalse(matrix.isStatisticsEnabled());
+		assertSame(XorMatrixStatistics.EMPTY, matrix.getStatistics());
+		matrix.setStatisticsEnabled(true);
+		assertTrue(matrix.isStatisticsEnabled());
+		assertFalse(matrix.copy().isStatisticsEnabled());
+		int mark = matrix.checkpoint();
+		int[] rows = SudokuCover.getGivenRows(SudokuCover.HARD, 9);
+		matrix.removeRows(rows);
+		int removed = 0;
+		for (int row = 0; row < matrix.getRowCount(); row++)
+			if (!matrix.containsRow(row))
+				removed++;
+		XorMatrixStatistics statistics = matrix.getStatistics();
+		// a given row can be removed by the effect of a given row before
+		assertTrue(statistics.getDirectRows() > 0);
+		assertTrue(statistics.getDirectRows() <= rows.length);
+		assertEquals(removed, statistics.getDirectRows() + statistics.getCascadeRows());
+		assertEquals(matrix.getTrailSize(), statistics.getRemovedNodes());
+		assertEquals(matrix.getTrailSize(), statistics.getPeakTrailSize());
+		assertTrue(statistics.getConflictRows() + statistics.getPairRows()
+				+ statistics.getTripleRows() + statistics.getCompleteColumns() > 0);
+		assertEquals(0, statistics.getRestores());
+		matrix.rollback(mark);
+		// the snapshot is not changed by later operations
+		assertEquals(0, statistics.getRestores());
+		assertEquals(1, matrix.getStatistics().getRestores());
+		assertEquals(statistics.getPeakTrailSize(), matrix.getStatistics().getPeakTrailSize());
+		matrix.resetStatistics();
+		assertEquals(XorMatrixStatistics.EMPTY.toString(), matrix.getStatistics().toString());
+		// the counters are used again after a reset
+		matrix.removeRow(rows[0]);
+		assertEquals(1, matrix.getStatistics().getDirectRows());
+		assertEquals(matrix.getTrailSize(), matrix.getStatistics().getRemovedNodes());
+		assertEquals(matrix.getTrailSize(), matrix.getStatistics().getPeakTrailSize());
+		matrix.setStatisticsEnabled(false);
+		assertSame(XorMatrixStatistics.EMPTY, matrix.getStatistics());
+	}
+
+	@Test
+	public void testSizes() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		assertEquals(4 * 81, matrix.getColumnCount());
+		assertSizes(matrix);
+		int mark = matrix.checkpoint();
+		for (int row : SudokuCover.getGivenRows(SudokuCover.HARD, 9))
+			matrix.removeRow(row);
+		assertSizes(matrix);
+		matrix.rollback(mark);
+		for (int column = 0; column < matrix.getColumnCount(); column++)
+			assertEquals(9, matrix.getColumnHeight(column));
+		for (int row = 0; row < matrix.getRowCount(); row++)
+			assertEquals(4, matrix.getRowWidth(row));
+	}
+
+	private static void assertSizes(XorMatrix matrix) {
+		int size = 0;
+		for (int row = 0; row < matrix.getRowCount(); row++) {
+			int width = matrix.getRowWidth(row);
+			assertEquals(matrix.containsRow(row), width > 0);
+			assertTrue(width <= 4);
+			size += width;
+		}
+		for (int column = 0; column < matrix.getColumnCount(); column++)
+			size -= matrix.getColumnHeight(column);
+		assertEquals(0, size);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRollbackClosedCheckpoint() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		int outer = matrix.checkpoint();
+		int inner = matrix.checkpoint();
+		matrix.rollback(outer);
+		matrix.rollback(inner);
+	}
+
+	@Test
+	public void testRestoreNodesClosesCheckpoints() {
+		XorMatrix matrix = SudokuCover.createXorMatrix(backing);
+		int[] rows = SudokuCover.getGivenRows(SudokuCover.EASY, 9);
+		int state = matrix.removeRow(rows[0]);
+		matrix.checkpoint();
+		matrix.removeRow(rows[1]);
+		matrix.checkpoint();
+		matrix.restoreNodes(state);
+		assertEquals(1, matrix.getCheckpointCount());
+		matrix.restoreNodes(0);
+		assertEquals(0, matrix.getCheckpointCount());
+	}
+
 	private void removeRow(XorMatrix matrix, int row, final int... expectedRows) {
 		Arrays.sort(expectedRows);
 		TestMatrixChangeHandler handler = new TestMatrixChangeHandler(row, expectedRows);
@@ -128,7 +621,7 @@ public class XorMatrixTest {
 		return rows;
 	}
 
-	private static XorMatrix createXorMatrix(int[] xorMatrix, int height) {
+	private XorMatrix createXorMatrix(int[] xorMatrix, int height) {
 		XorMatrixFactory factory = new XorMatrixFactory();
 		Set<Integer> usedColumns = new HashSet<Integer>();
 		List<Integer> rows = new LinkedList<Integer>();
@@ -144,7 +637,7 @@ public class XorMatrixTest {
 				rows.clear();
 			}
 		}
-		return factory.createXorMatrix();
+		return factory.createXorMatrix(backing);
 	}
 	
 	private static int[] convIntListToArray(List<Integer> list) {
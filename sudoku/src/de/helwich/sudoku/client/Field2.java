@@ -125,8 +125,9 @@ public class Field2 {
 		for (int i = 0; i < type.getHeight(); i++) {
 			sb.append("|");
 			for (int j = 0; j < type.getWidth(); j++) {
-				if (type.getCellIndex(new Cell(i, j)) != -1) {
-					BitSet set = getValue(new Cell(i, j));
+				int idx = type.getCellIndex(i, j);
+				if (idx != -1) {
+					BitSet set = getValue(idx);
 					sb.append(' ');
 					for (int k = 0; k < length; k++) {
 						if (set.get(k))
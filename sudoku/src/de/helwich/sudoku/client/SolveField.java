@@ -3,22 +3,92 @@ package de.helwich.sudoku.client;
 import static de.helwich.sudoku.client.BitSetUtil.*;
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 /**
+ * A field which propagates each change of a cell to the other cells of its
+ * groups by naked and hidden subsets up to the size
+ * {@link #getMaxSubsetSize()}.
+ * The change handlers are notified after the propagation has finished, once
+ * for each change of a cell in the order of the changes. The hidden subsets
+ * can change a cell earlier in the propagation than the naked subsets, and
+ * subsets larger than the maximum size are not searched, so the order and
+ * the number of the events of a call of {@link #setBitset(int, int, int)}
+ * differ from the versions which searched naked subsets of any size only.
+ *
  * @author Hendrik Helwich
  */
 public class SolveField extends Field {
 	
-	private Map<Cell, Integer> masksToApply = new LinkedHashMap<Cell, Integer>();
+	/**
+	 * The default value of {@link #getMaxSubsetSize()}. Together with the
+	 * hidden subsets it finds all subsets in a group of nine cells.
+	 */
+	public static final int DEFAULT_MAX_SUBSET_SIZE = 4;
+	
+	/** the index of the type which is shared by the fields of the type */
+	private final TypeIndex typeIndex;
+	/*
+	 * The cells which wait for a mask to be applied are stored in a ring
+	 * buffer of cell ids in the order they were added. A cell is in the
+	 * buffer at most once, so the buffer needs one entry per cell.
+	 */
+	private final int[] maskQueue;
+	private int queueHead, queueSize;
+	/** the mask which is applied to each queued cell */
+	private final int[] pendingMasks;
+	/** bitmap of the queued cell ids */
+	private final int[] queued;
+	/** the group cells which can hold each character as a bitset */
+	private final int[] symbolPositions = new int[MAX_INDEX + 1];
+	private int maxSubsetSize = DEFAULT_MAX_SUBSET_SIZE;
 	private List<Cell> changedIndices = new ArrayList<Cell>();
 
 	public SolveField(Type type) {
 		super(type);
+		typeIndex = this.type.getIndex();
+		int size = typeIndex.getCellCount();
+		maskQueue = new int[size];
+		pendingMasks = new int[size];
+		queued = new int[(size + 31) >>> 5];
+	}
+
+	/**
+	 * Returns the maximum size of the subsets which are searched for after a
+	 * cell has changed. A naked subset is a set of cells of a group which
+	 * can hold only as many characters as it has cells. A hidden subset is a
+	 * set of characters of a group which can be held only by as many cells
+	 * as it has characters. A naked subset of a group is the complement of a
+	 * hidden subset of the same group, so the naked subsets with at least
+	 * <code>n - max</code> cells of a group with <code>n</code> cells are
+	 * found too.
+	 * The initial value is {@link #DEFAULT_MAX_SUBSET_SIZE}.
+	 * 
+	 * @return the maximum number of cells of a naked subset and of
+	 *         characters of a hidden subset
+	 */
+	public int getMaxSubsetSize() {
+		return maxSubsetSize;
+	}
+
+	/**
+	 * Sets the maximum size of the subsets which are searched for after a
+	 * cell has changed. The number of subsets grows exponentially with their
+	 * size, so a small value makes the propagation in large types faster but
+	 * finds less changes.
+	 * 
+	 * @param  maxSubsetSize
+	 *         the maximum number of cells of a naked subset and of
+	 *         characters of a hidden subset
+	 * @throws IllegalArgumentException
+	 *         if the size is lower than one
+	 * @see    #getMaxSubsetSize()
+	 */
+	public void setMaxSubsetSize(int maxSubsetSize)
+			throws IllegalArgumentException {
+		if (maxSubsetSize < 1)
+			throw new IllegalArgumentException("maximum subset size must be positive");
+		this.maxSubsetSize = maxSubsetSize;
 	}
 
 	private static final boolean debug = false;
@@ -27,7 +97,8 @@ public class SolveField extends Field {
 	public synchronized void setBitset(int row, int column, int newValue)
 			throws IndexOutOfBoundsException {
 		assert type.hasCellIndex(row, column);
-		Cell index = new Cell(row, column);
+		int id = typeIndex.getCellId(row, column);
+		Cell index = typeIndex.getCell(id);
 		int oldValue = getBitset(row, column);
 		newValue &= oldValue;
 		if (debug)
@@ -38,85 +109,93 @@ public class SolveField extends Field {
 			if (oldValue != newValue) {
 				if (debug)
 					System.out.println(" changed "+oldValue+" "+newValue);
-				calculateEffect(index, newValue, oldValue);
+				calculateEffect(id, newValue, oldValue);
 				setValue(index.getRow(), index.getColumn(), newValue);
+				if (newValue != 0)
+					calculateHiddenSubsets(id, oldValue & ~newValue);
 				storeChangedIndex(index);
 			} else
 				if (debug)
 					System.out.println(" no change "+newValue);
 			// get next cell index and value to be updated or exit loop if finished
-			Entry<Cell, Integer> index2 = getNextMaskIndex();
-			if (index2 == null)
+			if (queueSize == 0)
 				break;
-			index = index2.getKey();
+			id = pollMaskIndex();
+			index = typeIndex.getCell(id);
 			oldValue = getBitset(index.getRow(), index.getColumn());
-			newValue = oldValue & index2.getValue();
+			newValue = oldValue & pendingMasks[id];
 		}
 		notifyChangedIndices();
 	}
 
+
+	/*
+	 * The sets of cells which are built by calculateEffect. The sets with
+	 * the same cardinality card are stored one after another by their peer
+	 * positions in ascending order, each set with card positions, the
+	 * common groups of its cells and two values: the union of the old
+	 * values and the union of the new values of its cells.
+	 */
+	private int[] indexSets = new int[64];
+	private int[] indexGroups = new int[64];
+	private int[] indexValues = new int[128];
+	private int setCount;
 	
-	private List<Cell> effectIndices = new ArrayList<Cell>();
-	private List<Integer> effectIndicesGroups = new ArrayList<Integer>();
-	
-	private List<Integer> indexSets = new ArrayList<Integer>();
-	private List<Integer> indexGroups = new ArrayList<Integer>();
-	private List<Integer> indexValues = new ArrayList<Integer>();
-	
-	private List<Integer> indexSets2 = new ArrayList<Integer>();
-	private List<Integer> indexGroups2 = new ArrayList<Integer>();
-	private List<Integer> indexValues2 = new ArrayList<Integer>();
+	// the sets with cardinality card + 1
+	private int[] indexSets2 = new int[64];
+	private int[] indexGroups2 = new int[64];
+	private int[] indexValues2 = new int[128];
+	private int setCount2;
 	
-	private void calculateEffect(Cell index, int newValue, int oldValue) {
-		// get groups which contain the given index
-		Iterable<CellGroup> groups = type.getCellGroups(index);
+	private void calculateEffect(int id, int newValue, int oldValue) {
+		int[] peers = typeIndex.getPeers(id);
+		int[] groups = typeIndex.getPeerGroups(id);
 		
+		// the cell itself is skipped in both cases, because its value is
+		// set to the new value anyway
 		if (newValue == 0) {
 			// value set is empty => all group indices must be empty too
-			for (CellGroup group : groups)
-				for (Cell idx : group.getCellIndices())
-					storeMask(idx, 0);
+			for (int k = 1; k < peers.length; k++)
+				storeMask(peers[k], 0);
 			return;
 		} else if (cardinality(newValue) == 1) {
 			// value set does contain only one value => remove value from all
 			// other indices values
-			for (CellGroup group : groups)
-				for (Cell idx : group.getCellIndices())
-					if (!idx.equals(index)) //TODO use "==" later
-						storeMask(idx, ~newValue);
+			for (int k = 1; k < peers.length; k++)
+				storeMask(peers[k], ~newValue);
 			return;
 		}
 		
-		calculateIndexGroups(index);
-
-		indexSets.add(0);
-		indexGroups.add(effectIndicesGroups.get(0));
-		indexValues.add(oldValue);
-		indexValues.add(newValue);
+		indexSets[0] = 0;
+		indexGroups[0] = groups[0];
+		indexValues[0] = oldValue;
+		indexValues[1] = newValue;
+		setCount = 1;
 
 		int card = 1;
 		
-		while (! indexSets.isEmpty()) {
+		while (setCount != 0 && card < maxSubsetSize) {
 			if (debug)
 				System.out.println("build sets with cardinality "+(card +1));
 			// sets with cardinality card do exist => build sets with
 			// cardinality card + 1
-			for (int i = 0; i < indexGroups.size(); i++) { // iterate over all sets with cardinality card
+			setCount2 = 0;
+			for (int i = 0; i < setCount; i++) { // iterate over all sets with cardinality card
 				int lastIndex = i * card + card -1; // index of last (and highest) element of set i
 				// get old and new values of set with index i 
-				oldValue = indexValues.get(i*2);
-				newValue = indexValues.get(i*2+1);
+				oldValue = indexValues[i*2];
+				newValue = indexValues[i*2+1];
 				// get groups of set with index i
-				int gps = indexGroups.get(i);
+				int gps = indexGroups[i];
 				// iterate over all elements which should be united with set i
 				// (all cells grouped with the given cell and higher than the
 				// highest element of set i).
-				for (int k = indexSets.get(lastIndex)+1; k < effectIndices.size(); k++) {
+				for (int k = indexSets[lastIndex]+1; k < peers.length; k++) {
 					// calculate groups of new union
-					int ngps = effectIndicesGroups.get(k) & gps;
+					int ngps = groups[k] & gps;
 					if (ngps != 0) { // groups not empty => set could be relevant
 						// get cell index of new element which should be united with the set i
-						Cell in = effectIndices.get(k);
+						Cell in = typeIndex.getCell(peers[k]);
 						// get old and new values of the set i unified with the new element
 						int nv = getBitset(in.getRow(), in.getColumn());
 						int ov = nv | oldValue;
@@ -132,10 +211,9 @@ public class SolveField extends Field {
 								// iterate over all cells
 								
 								cellit:
-								for (int m = 0; m < effectIndices.size(); m++) {
+								for (int m = 0; m < peers.length; m++) {
 									// get groups which contain this cell
-									if (m != k && 
-											((ngps & effectIndicesGroups.get(m)) != 0)) {
+									if (m != k && ((ngps & groups[m]) != 0)) {
 										// apply mask later to all cells which
 										// are grouped with the init cell and
 										// which are not the init cell and are
@@ -144,26 +222,20 @@ public class SolveField extends Field {
 										// iterate over all cells of the set i
 										for (int l = i*card; l <= lastIndex; l++)
 											// 
-											if (indexSets.get(l) == m)
+											if (indexSets[l] == m)
 												continue cellit;
-										storeMask(effectIndices.get(m), ~nv);
+										storeMask(peers[m], ~nv);
 									}
 								}
-							} else if (c > card + 1) {
-								if (debug)
+							} else if (c > card + 1 && card + 1 < maxSubsetSize) {
+								if (debug) {
 									System.out.print("create set ");
-								for (int n = i * card; n <= lastIndex; n++) {
-									indexSets2.add(indexSets.get(n));
-									if (debug)
-										System.out.print(effectIndices.get(indexSets.get(n))+", ");
+									for (int n = i * card; n <= lastIndex; n++)
+										System.out.print(typeIndex.getCell(peers[indexSets[n]])+", ");
+									System.out.println(in);
 								}
-								indexSets2.add(k);
-								if (debug)
-									System.out.println(effectIndices.get(k));
-								indexGroups2.add(ngps);
-								indexValues2.add(ov);
-								indexValues2.add(nv);
-							} else // c < card //TODO remove later if algorithm is final
+								addSet(i * card, card, k, ngps, ov, nv);
+							} else if (c < card + 1) //TODO remove later if algorithm is final
 								throw new RuntimeException("should not be possible");
 						}
 					}
@@ -174,47 +246,124 @@ public class SolveField extends Field {
 
 			card ++;
 			
-			prepareLists();
+			swapSets();
 		}
-		
-		// clear used global data structs
-		effectIndices.clear();
-		effectIndicesGroups.clear();
 	}
 	
-	private void calculateIndexGroups(Cell index) {
-		Iterable<CellGroup> groups = type.getCellGroups(index);
-		// store indices which are grouped with the given index and calculate
-		// in which groups they are
-		int groupIndex = 0; // an index for the groups
-		// add given index to the index list. index groups is now empty but will
-		// be filled below
-		effectIndices.add(index);
-		effectIndicesGroups.add(0);
-		for (CellGroup group : groups) {
-			Cell[] indices = group.getCellIndices();
-			for (Cell idx : indices) {
-				int v = set(0, groupIndex);
-				int i = effectIndices.indexOf(idx); // search index in index list
-				if (i != -1) // index is in the list => add group id to group id set
-					effectIndicesGroups.set(i, effectIndicesGroups.get(i) | v);
-				else { // index is not in the list => add
-					effectIndices.add(idx);
-					effectIndicesGroups.add(v);
-				}
+	/**
+	 * Searches the hidden subsets which are created by removing the given
+	 * characters from the cell with the given id. The cell must hold its new
+	 * value. A new hidden subset of a group of the cell contains one of the
+	 * removed characters, because the cells which can hold the other
+	 * characters have not changed. The cells of a hidden subset can only
+	 * hold its characters.
+	 * 
+	 * @param  id
+	 * @param  removed
+	 *         the characters which have been removed from the cell
+	 */
+	private void calculateHiddenSubsets(int id, int removed) {
+		for (int g : typeIndex.getCellGroups(id)) {
+			int chars = typeIndex.getGroupBitset(g);
+			int changed = removed & chars;
+			if (changed == 0)
+				continue;
+			// get the cells of the group which can hold each character and
+			// the characters which are the single value of a cell
+			int[] ids = typeIndex.getGroupCells(g);
+			for (int s = nextSetBit(chars, 0); s != -1; s = nextSetBit(chars, s + 1))
+				symbolPositions[s] = 0;
+			int placed = 0;
+			for (int j = 0; j < ids.length; j++) {
+				Cell cell = typeIndex.getCell(ids[j]);
+				int value = getBitset(cell.getRow(), cell.getColumn()) & chars;
+				if (cardinality(value) == 1)
+					placed |= value;
+				for (int s = nextSetBit(value, 0); s != -1; s = nextSetBit(value, s + 1))
+					symbolPositions[s] |= 1 << j;
+			}
+			// a placed character is removed from the other cells by its cell
+			int candidates = chars & ~placed;
+			changed &= candidates;
+			for (int s = nextSetBit(changed, 0); s != -1; s = nextSetBit(changed, s + 1)) {
+				// the subsets with a lower changed character are searched
+				// already
+				candidates = clear(candidates, s);
+				findHiddenSubsets(ids, set(0, s), symbolPositions[s], 1, candidates);
 			}
-			groupIndex++;
 		}
 	}
 
-	private void prepareLists() {
-		// clear old lists
-		indexSets.clear();
-		indexGroups.clear();
-		indexValues.clear();
-		
-		// swap lists
-		List<Integer> tmp = indexSets;
+	/**
+	 * Searches the hidden subsets which contain the given characters and
+	 * some of the candidate characters in ascending order.
+	 * 
+	 * @param  ids
+	 *         the cells of the group
+	 * @param  symbols
+	 *         the characters of the current subset
+	 * @param  positions
+	 *         the group cells which can hold a character of the subset
+	 * @param  size
+	 *         the number of characters of the subset
+	 * @param  candidates
+	 *         the characters which can be added to the subset
+	 */
+	private void findHiddenSubsets(int[] ids, int symbols, int positions,
+			int size, int candidates) {
+		int c = cardinality(positions);
+		if (c < size) {
+			// the characters can not all be set => field is not solvable
+			for (int id : ids)
+				storeMask(id, 0);
+			return;
+		} else if (c == size) { // hidden subset found
+			for (int j = nextSetBit(positions, 0); j != -1; j = nextSetBit(positions, j + 1)) {
+				Cell cell = typeIndex.getCell(ids[j]);
+				if ((getBitset(cell.getRow(), cell.getColumn()) & ~symbols) != 0)
+					storeMask(ids[j], symbols);
+			}
+			return;
+		}
+		if (size == maxSubsetSize)
+			return;
+		for (int s = nextSetBit(candidates, 0); s != -1; s = nextSetBit(candidates, s + 1)) {
+			int p = positions | symbolPositions[s];
+			// the positions of a subset only grow if characters are added
+			if (cardinality(p) <= maxSubsetSize)
+				findHiddenSubsets(ids, set(symbols, s), p, size + 1,
+						candidates & (INT_MASK << s << 1));
+		}
+	}
+
+	/**
+	 * Stores a set with cardinality card + 1 which contains the given cell
+	 * and the cells of the set with cardinality card at the given offset.
+	 */
+	private void addSet(int offset, int card, int k, int groups, int oldValue,
+			int newValue) {
+		int start = setCount2 * (card + 1);
+		indexSets2 = ensureCapacity(indexSets2, start + card + 1);
+		indexGroups2 = ensureCapacity(indexGroups2, setCount2 + 1);
+		indexValues2 = ensureCapacity(indexValues2, setCount2 * 2 + 2);
+		System.arraycopy(indexSets, offset, indexSets2, start, card);
+		indexSets2[start + card] = k;
+		indexGroups2[setCount2] = groups;
+		indexValues2[setCount2 * 2] = oldValue;
+		indexValues2[setCount2 * 2 + 1] = newValue;
+		setCount2++;
+	}
+	
+	private static int[] ensureCapacity(int[] array, int length) {
+		if (array.length >= length)
+			return array;
+		int[] copy = new int[Math.max(length, array.length * 2)];
+		System.arraycopy(array, 0, copy, 0, array.length);
+		return copy;
+	}
+
+	private void swapSets() {
+		int[] tmp = indexSets;
 		indexSets = indexSets2;
 		indexSets2 = tmp;
 		tmp = indexGroups;
@@ -223,22 +372,30 @@ public class SolveField extends Field {
 		tmp = indexValues;
 		indexValues = indexValues2;
 		indexValues2 = tmp;
+		setCount = setCount2;
 	}
 
-	private void storeMask(Cell index, int mask) {
-		Integer m = masksToApply.get(index);
-		if (m != null)
-			mask &= m;
-		masksToApply.put(index, mask);
+	private void storeMask(int id, int mask) {
+		if ((queued[id >>> 5] & (1 << id)) != 0) // cell is queued => combine masks
+			pendingMasks[id] &= mask;
+		else {
+			queued[id >>> 5] |= 1 << id;
+			pendingMasks[id] = mask;
+			int tail = queueHead + queueSize++;
+			maskQueue[tail < maskQueue.length ? tail : tail - maskQueue.length] = id;
+		}
 	}
 	
-	private Entry<Cell, Integer> getNextMaskIndex() {
-		if (masksToApply.isEmpty())
-			return null;
-		Iterator<Entry<Cell, Integer>> it = masksToApply.entrySet().iterator();
-		Entry<Cell, Integer> entry = it.next();
-		it.remove();
-		return entry;
+	/**
+	 * Removes the first cell id from the queue which must not be empty.
+	 */
+	private int pollMaskIndex() {
+		int id = maskQueue[queueHead];
+		if (++queueHead == maskQueue.length)
+			queueHead = 0;
+		queueSize--;
+		queued[id >>> 5] &= ~(1 << id);
+		return id;
 	}
 	
 	private void storeChangedIndex(Cell index) {
@@ -42,11 +42,22 @@ public class Type {
 	 */
 	private Map<Cell, Set<CellGroup>> cellGroups = new HashMap<Cell, Set<CellGroup>>();
 
+	/**
+	 * The keys of the parameter {@link #cellGroups} by row and column. A row
+	 * array is <code>null</code> or shorter than the width if the row has no
+	 * cells at the following columns. It is adapted together with
+	 * {@link #cellGroups}, so a cell can be looked up without creating an
+	 * object or compiling the {@link #index}.
+	 */
+	private Cell[][] cellGrid = new Cell[0][];
+
 	/** -1 if {@link #groups} and {@link #cellGroups} have changed */
 	private int height;
 	private int width;
 	private boolean topLeftAligned;
 	private int maxBitsetIndex;
+	/** the compiled index or <code>null</code> if the groups have changed */
+	private TypeIndex index;
 
 	/**
 	 * Create an empty sudoku type.
@@ -153,6 +164,7 @@ public class Type {
 			if (cgps == null) { // new cell index => create empty group set
 				cgps = new HashSet<CellGroup>();
 				cellGroups.put(idx, cgps);
+				setGridCell(idx.getRow(), idx.getColumn(), idx);
 			}
 			// add new group to cell index group set
 			cgps.add(group);
@@ -173,11 +185,37 @@ public class Type {
 			if (!gps.remove(group))
 				throw new RuntimeException("this should not happen");
 			// if index group set is empty remove index key
-			if (gps.isEmpty())
+			if (gps.isEmpty()) {
 				cellGroups.remove(idx);
+				setGridCell(idx.getRow(), idx.getColumn(), null);
+			}
 		}
 	}
 
+	/**
+	 * Stores the given cell in the parameter {@link #cellGrid} and grows the
+	 * grid if needed.
+	 */
+	private void setGridCell(int row, int column, Cell cell) {
+		if (row >= cellGrid.length) {
+			if (cell == null)
+				return;
+			Cell[][] tmp = new Cell[row + 1][];
+			System.arraycopy(cellGrid, 0, tmp, 0, cellGrid.length);
+			cellGrid = tmp;
+		}
+		Cell[] cells = cellGrid[row];
+		if (cells == null || column >= cells.length) {
+			if (cell == null)
+				return;
+			Cell[] tmp = new Cell[column + 1];
+			if (cells != null)
+				System.arraycopy(cells, 0, tmp, 0, cells.length);
+			cellGrid[row] = cells = tmp;
+		}
+		cells[column] = cell;
+	}
+
 	/**
 	 * Returns <code>true</code> if the cell with the given row and column
 	 * exists in this type.
@@ -187,11 +225,11 @@ public class Type {
 	 * @return
 	 */
 	public boolean hasCellIndex(int row, int column) {
-		return hasCellIndex(new Cell(row, column));
+		return getCell(row, column) != null;
 	}
 
 	public boolean hasCellIndex(Cell index) {
-		return cellGroups.keySet().contains(index);
+		return getCell(index.getRow(), index.getColumn()) != null;
 	}
 
 	/**
@@ -203,13 +241,33 @@ public class Type {
 	 * @return
 	 */
 	public Iterable<CellGroup> getCellGroups(int row, int column) { //TODO remove?
-		return getCellGroups(new Cell(row, column));
+		Cell cell = getCell(row, column);
+		return cell == null ? null : getCellGroups(cell);
 	}
 	
 	public Set<CellGroup> getCellGroups(Cell index) {
 		return cellGroups.get(index);
 	}
 
+	/**
+	 * Returns the cell with the given row and column. The same instance is
+	 * returned on each call as long as the cell exists in this type, so no
+	 * cell needs to be created to look up a cell. The lookup does not
+	 * compile the {@link #getIndex() index}, so it stays cheap while the
+	 * groups are edited.
+	 * 
+	 * @param  row
+	 * @param  column
+	 * @return the cell or <code>null</code> if the cell does not exist in
+	 *         this type
+	 */
+	public Cell getCell(int row, int column) {
+		if (row < 0 || row >= cellGrid.length || column < 0)
+			return null;
+		Cell[] cells = cellGrid[row];
+		return cells == null || column >= cells.length ? null : cells[column];
+	}
+
 	/**
 	 * Returns the set of character which can be stored in a cell of this type.
 	 * 
@@ -344,15 +402,31 @@ public class Type {
 		for (CellGroup group : groups)
 			type.addCellGroup(group);
 		type.setFieldChars(getFieldChars());
+		// the groups are immutable, so the copy can share the index
+		type.index = getIndex();
 		return type;
 	}
 
+	/**
+	 * Returns the index of the cells and groups of this type which is used
+	 * by the solver. The index is compiled on the first call after the
+	 * groups have changed.
+	 * 
+	 * @return the index of the current groups
+	 */
+	public TypeIndex getIndex() {
+		if (index == null)
+			index = new TypeIndex(this);
+		return index;
+	}
+
 	/**
 	 * Has to be called if {@link #groups} and {@link #cellGroups} have changed,
 	 * to be able to recalculate affected parameters
 	 */
 	private void resetDimension() {
 		height = -1;
+		index = null;
 	}
 
 	/**
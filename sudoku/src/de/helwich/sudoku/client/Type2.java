@@ -23,6 +23,8 @@ public class Type2 {
 	
 	private final int height;
 	private final int width;
+	/** the index of the cell at each grid position or -1 */
+	private final int[] gridCells;
 	                           
 	public Type2(Group... groups) {
 		List<Character> chars = new ArrayList<Character>();
@@ -62,6 +64,10 @@ public class Type2 {
 		
 		this.cells = cells.toArray(new Cell[cells.size()]);
 		cells = null;
+		gridCells = new int[height * width];
+		Arrays.fill(gridCells, -1);
+		for (int i = 0; i < this.cells.length; i++)
+			gridCells[this.cells[i].getRow() * width + this.cells[i].getColumn()] = i;
 		char[] chrs = box(chars);
 		chars = null;
 		this.chars = new String(chrs);
@@ -119,6 +125,16 @@ public class Type2 {
 	public int getCellIndex(Cell cell) {
 		return Arrays.binarySearch(cells, cell);
 	}
+
+	/**
+	 * Returns the index of the cell with the given row and column or -1 if
+	 * the cell does not exist. No cell needs to be created for the lookup.
+	 */
+	public int getCellIndex(int row, int column) {
+		if (row < 0 || row >= height || column < 0 || column >= width)
+			return -1;
+		return gridCells[row * width + column];
+	}
 	
 	public Cell getCell(int index) {
 		return cells[index];
@@ -37,26 +37,26 @@ public class TypeFactory {
 		Type type = new Type();
 		type.setFieldChars(fieldChars);
 		int bmap = BitSetUtil.set(0, 0, size);
-		CellIndex[] fi;
+		Cell[] fi;
 		for (int i = 0; i < size; i ++) {
 			// define row groups
-			fi = new CellIndex[size];
+			fi = new Cell[size];
 			for (int j = 0; j < size; j ++)
-				fi[j] = new CellIndex(i, j);
+				fi[j] = new Cell(i, j);
 			type.addCellGroup(new CellGroup(bmap, fi));
 			// define column groups
-			fi = new CellIndex[size];
+			fi = new Cell[size];
 			for (int j = 0; j < size; j ++)
-				fi[j] = new CellIndex(j, i);
+				fi[j] = new Cell(j, i);
 			type.addCellGroup(new CellGroup(bmap, fi));
 		}
 		// define block groups
 		for (int i = 0; i < row; i ++) {
 			for (int j = 0; j < column; j ++) {
-				fi = new CellIndex[size];
+				fi = new Cell[size];
 				for (int k = 0; k < column; k ++)
 					for (int l = 0; l < row; l ++)
-						fi[k*row + l] = new CellIndex(i*column + k, j*row + l);
+						fi[k*row + l] = new Cell(i*column + k, j*row + l);
 				type.addCellGroup(new CellGroup(bmap, fi));
 			}
 		}
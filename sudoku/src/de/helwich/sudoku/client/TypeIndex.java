@@ -0,0 +1,235 @@
+package de.helwich.sudoku.client;
+
+import static de.helwich.sudoku.client.BitSetUtil.*;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * An immutable index of the cells and groups of a sudoku {@link Type} which
+ * is compiled once by {@link Type#getIndex()} and shared by the copies of the
+ * type.
+ * The cells are identified by dense ids from zero to the number of cells
+ * minus one in ascending cell order. The groups are identified by their
+ * index in the type.
+ * The peers of a cell are the cells which share a group with it. They are
+ * stored in the ascending order of the groups of the cell and the first peer
+ * of a cell is the cell itself. The groups of a cell which contain a peer are
+ * stored as a bitset of the positions of these groups in the group array of
+ * the cell.
+ *
+ * @see Type
+ *
+ * @author Hendrik Helwich
+ */
+public final class TypeIndex {
+
+	/** number of grid columns which is used to find the id of a cell */
+	private final int columns;
+	/** the cell id of each grid position or -1 if it is not a cell */
+	private final int[] cellIds;
+	private final Cell[] cells;
+	/** the cell ids of each group */
+	private final int[][] groupCells;
+	/** the characters of each group */
+	private final int[] groupBitsets;
+	/** the groups of each cell */
+	private final int[][] cellGroups;
+	private final int[][] peers;
+	private final int[][] peerGroups;
+
+	/**
+	 * Must only be called by {@link Type}.
+	 */
+	TypeIndex(Type type) {
+		cells = type.getCellIndices().toArray(new Cell[type.getCellCount()]);
+		Arrays.sort(cells);
+		int rows = 0;
+		int columns = 0;
+		for (Cell cell : cells) {
+			rows = Math.max(rows, cell.getRow() + 1);
+			columns = Math.max(columns, cell.getColumn() + 1);
+		}
+		this.columns = columns;
+		cellIds = new int[rows * columns];
+		Arrays.fill(cellIds, -1);
+		for (int id = 0; id < cells.length; id++)
+			cellIds[cells[id].getRow() * columns + cells[id].getColumn()] = id;
+		// store the cells and characters of each group
+		CellGroup[] typeGroups = new CellGroup[type.getCellGroupCount()];
+		groupCells = new int[typeGroups.length][];
+		groupBitsets = new int[typeGroups.length];
+		int g = 0;
+		for (CellGroup group : type.getCellGroups()) {
+			typeGroups[g] = group;
+			Cell[] indices = group.getCellIndices();
+			groupCells[g] = new int[indices.length];
+			for (int j = 0; j < indices.length; j++)
+				groupCells[g][j] = getCellId(indices[j]);
+			groupBitsets[g++] = group.getBitset();
+		}
+		// store the groups of each cell in ascending order and the peers of
+		// each cell
+		cellGroups = new int[cells.length][];
+		peers = new int[cells.length][];
+		peerGroups = new int[cells.length][];
+		int[] position = new int[cells.length];
+		Arrays.fill(position, -1);
+		int[] ids = new int[cells.length];
+		int[] groups = new int[cells.length];
+		for (int id = 0; id < cells.length; id++) {
+			cellGroups[id] = getGroupIndices(type.getCellGroups(cells[id]), typeGroups);
+			calculatePeers(id, position, ids, groups);
+		}
+	}
+
+	/**
+	 * Returns the indices of the given groups in the groups of the type in
+	 * ascending order. The group set of a cell is a hash set, so its order
+	 * must not be used.
+	 */
+	private static int[] getGroupIndices(Set<CellGroup> groups,
+			CellGroup[] typeGroups) {
+		int[] indices = new int[groups.size()];
+		int i = 0;
+		for (CellGroup group : groups) {
+			int g = 0;
+			while (typeGroups[g] != group)
+				g++;
+			indices[i++] = g;
+		}
+		Arrays.sort(indices);
+		return indices;
+	}
+
+	/**
+	 * Stores the peers of the cell with the given id and the groups of the
+	 * cell which contain them.
+	 *
+	 * @param  id
+	 * @param  position
+	 *         scratch array which holds -1 for each cell id
+	 * @param  ids
+	 *         scratch array for the peers
+	 * @param  groups
+	 *         scratch array for the groups of the peers
+	 */
+	private void calculatePeers(int id, int[] position, int[] ids,
+			int[] groups) {
+		ids[0] = id;
+		groups[0] = 0;
+		position[id] = 0;
+		int count = 1;
+		for (int groupIndex = 0; groupIndex < cellGroups[id].length; groupIndex++) {
+			int v = set(0, groupIndex);
+			for (int peer : groupCells[cellGroups[id][groupIndex]]) {
+				int i = position[peer];
+				if (i != -1) // cell is a peer already => add group id
+					groups[i] |= v;
+				else {
+					position[peer] = count;
+					ids[count] = peer;
+					groups[count++] = v;
+				}
+			}
+		}
+		peers[id] = new int[count];
+		peerGroups[id] = new int[count];
+		System.arraycopy(ids, 0, peers[id], 0, count);
+		System.arraycopy(groups, 0, peerGroups[id], 0, count);
+		for (int i = 0; i < count; i++)
+			position[ids[i]] = -1;
+	}
+
+	public int getCellCount() {
+		return cells.length;
+	}
+
+	/**
+	 * Returns the id of the cell with the given row and column.
+	 *
+	 * @param  row
+	 * @param  column
+	 * @return the id of the cell or -1 if the cell does not exist in the type
+	 */
+	public int getCellId(int row, int column) {
+		if (row < 0 || column < 0 || column >= columns)
+			return -1;
+		int position = row * columns + column;
+		return position < cellIds.length ? cellIds[position] : -1;
+	}
+
+	/**
+	 * Returns the id of the given cell.
+	 *
+	 * @param  cell
+	 * @return the id of the cell or -1 if the cell does not exist in the type
+	 */
+	public int getCellId(Cell cell) {
+		return getCellId(cell.getRow(), cell.getColumn());
+	}
+
+	/**
+	 * Returns the cell with the given id.
+	 *
+	 * @param  id
+	 * @return
+	 * @throws IndexOutOfBoundsException
+	 *         if the id is not lower than the number of cells
+	 */
+	public Cell getCell(int id) throws IndexOutOfBoundsException {
+		return cells[id];
+	}
+
+	public int getGroupCount() {
+		return groupCells.length;
+	}
+
+	/**
+	 * Returns the characters of the group with the given index.
+	 *
+	 * @see CellGroup#getBitset()
+	 */
+	public int getGroupBitset(int group) {
+		return groupBitsets[group];
+	}
+
+	/*
+	 * The following operations return arrays which are shared and must not
+	 * be changed.
+	 */
+
+	/**
+	 * Returns the cell ids of the group with the given index in the order of
+	 * {@link CellGroup#getCellIndices()}.
+	 */
+	int[] getGroupCells(int group) {
+		return groupCells[group];
+	}
+
+	/**
+	 * Returns the indices of the groups which contain the cell with the given
+	 * id in ascending order.
+	 */
+	int[] getCellGroups(int id) {
+		return cellGroups[id];
+	}
+
+	/**
+	 * Returns the ids of the peers of the cell with the given id. The first
+	 * peer is the cell itself.
+	 */
+	int[] getPeers(int id) {
+		return peers[id];
+	}
+
+	/**
+	 * Returns for each peer of the cell with the given id the groups of the
+	 * cell which contain the peer as a bitset of positions in the array
+	 * {@link #getCellGroups(int)}.
+	 */
+	int[] getPeerGroups(int id) {
+		return peerGroups[id];
+	}
+
+}
@@ -0,0 +1,122 @@
+package de.helwich.sudoku.client;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the propagation of {@link SolveField} by fields with a single group
+ * in which only a hidden subset eliminates characters. The naked subset which
+ * is the complement of the hidden subset has four cells, so it is larger
+ * than the maximum subset sizes which are used.
+ *
+ * @author Hendrik Helwich
+ */
+public class SolveFieldTest {
+
+	/**
+	 * Returns a field with a single group of the given number of cells in the
+	 * first row which can hold the given characters.
+	 */
+	private static SolveField createField(String chars, int maxSubsetSize) {
+		Cell[] cells = new Cell[chars.length()];
+		for (int i = 0; i < cells.length; i++)
+			cells[i] = new Cell(0, i);
+		Type type = new Type();
+		type.setFieldChars(chars);
+		type.addCellGroup(new CellGroup((1 << cells.length) - 1, cells));
+		SolveField field = new SolveField(type);
+		field.setMaxSubsetSize(maxSubsetSize);
+		return field;
+	}
+
+	/**
+	 * Sets the values of the first row of the field without propagation.
+	 */
+	private static void setValues(SolveField field, int... values) {
+		for (int i = 0; i < values.length; i++)
+			field.setValue(0, i, values[i]);
+	}
+
+	private static void assertValues(SolveField field, int... values) {
+		for (int i = 0; i < values.length; i++)
+			assertEquals("cell " + i, values[i], field.getBitset(0, i));
+	}
+
+	/**
+	 * The characters 1 and 2 can only be held by the first two cells after
+	 * the character 1 is removed from the third cell.
+	 */
+	private static SolveField createHiddenPairField(int maxSubsetSize) {
+		SolveField field = createField("123456", maxSubsetSize);
+		setValues(field, 0x3f, 0x3f, 0x3d, 0x3c, 0x3c, 0x3c);
+		return field;
+	}
+
+	/**
+	 * The characters 1, 2 and 3 can only be held by the first three cells
+	 * after the character 1 is removed from the fourth cell.
+	 */
+	private static SolveField createHiddenTripleField(int maxSubsetSize) {
+		SolveField field = createField("1234567", maxSubsetSize);
+		setValues(field, 0x7f, 0x7f, 0x7f, 0x79, 0x78, 0x78, 0x78);
+		return field;
+	}
+
+	@Test
+	public void testHiddenPair() {
+		SolveField field = createHiddenPairField(2);
+		final List<Cell> changes = new ArrayList<Cell>();
+		field.addChangeHandler(new CellChangeHandler() {
+			public void onChange(Cell index) {
+				changes.add(index);
+			}
+		});
+		field.setBitset(0, 2, 0x3c);
+		assertValues(field, 0x03, 0x03, 0x3c, 0x3c, 0x3c, 0x3c);
+		// the changed cell is notified first, then the cells of the pair
+		assertEquals(3, changes.size());
+		assertEquals(new Cell(0, 2), changes.get(0));
+		assertTrue(changes.contains(new Cell(0, 0)));
+		assertTrue(changes.contains(new Cell(0, 1)));
+	}
+
+	@Test
+	public void testHiddenPairBound() {
+		SolveField field = createHiddenPairField(1);
+		field.setBitset(0, 2, 0x3c);
+		assertValues(field, 0x3f, 0x3f, 0x3c, 0x3c, 0x3c, 0x3c);
+	}
+
+	@Test
+	public void testHiddenTriple() {
+		SolveField field = createHiddenTripleField(3);
+		field.setBitset(0, 3, 0x78);
+		assertValues(field, 0x07, 0x07, 0x07, 0x78, 0x78, 0x78, 0x78);
+	}
+
+	@Test
+	public void testHiddenTripleBound() {
+		SolveField field = createHiddenTripleField(2);
+		field.setBitset(0, 3, 0x78);
+		assertValues(field, 0x7f, 0x7f, 0x7f, 0x78, 0x78, 0x78, 0x78);
+	}
+
+	@Test
+	public void testMaxSubsetSize() {
+		SolveField field = createField("12", SolveField.DEFAULT_MAX_SUBSET_SIZE);
+		assertEquals(SolveField.DEFAULT_MAX_SUBSET_SIZE,
+				field.getMaxSubsetSize());
+		field.setMaxSubsetSize(1);
+		assertEquals(1, field.getMaxSubsetSize());
+		try {
+			field.setMaxSubsetSize(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+}
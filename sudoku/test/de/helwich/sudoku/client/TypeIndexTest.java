@@ -0,0 +1,195 @@
+package de.helwich.sudoku.client;
+
+import static de.helwich.sudoku.client.BitSetUtil.*;
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Hendrik Helwich
+ */
+public class TypeIndexTest {
+
+	private Type type, sparseType;
+
+	@Before
+	public void setUp() throws Exception {
+		type = TypeFactory.createDefaultType(2, 2, "1234");
+		// three cells with gaps in the grid and groups which overlap in
+		// different ways
+		sparseType = new Type();
+		sparseType.setFieldChars("123");
+		sparseType.addCellGroup(new CellGroup(1|2,
+				new Cell(0, 3), new Cell(2, 1)));
+		sparseType.addCellGroup(new CellGroup(1|2|4,
+				new Cell(0, 0), new Cell(0, 3), new Cell(2, 1)));
+		sparseType.addCellGroup(new CellGroup(1,
+				new Cell(2, 1)));
+	}
+
+	@Test
+	public void testCellIds() {
+		TypeIndex index = type.getIndex();
+		assertEquals(16, index.getCellCount());
+		Cell last = null;
+		for (int id = 0; id < index.getCellCount(); id++) {
+			Cell cell = index.getCell(id);
+			assertEquals(id, index.getCellId(cell));
+			assertEquals(id, index.getCellId(cell.getRow(), cell.getColumn()));
+			if (last != null)
+				assertTrue(last.compareTo(cell) < 0);
+			last = cell;
+		}
+		assertEquals(-1, index.getCellId(-1, 0));
+		assertEquals(-1, index.getCellId(0, 4));
+		assertEquals(-1, index.getCellId(4, 0));
+	}
+
+	@Test
+	public void testSparseCellIds() {
+		TypeIndex index = sparseType.getIndex();
+		assertEquals(3, index.getCellCount());
+		assertEquals(0, index.getCellId(0, 0));
+		assertEquals(1, index.getCellId(0, 3));
+		assertEquals(2, index.getCellId(2, 1));
+		assertEquals(-1, index.getCellId(0, 1));
+		assertEquals(-1, index.getCellId(1, 0));
+		assertEquals(-1, index.getCellId(2, 3));
+		assertEquals(-1, index.getCellId(3, 1));
+		assertEquals(-1, index.getCellId(new Cell(1, 1)));
+	}
+
+	@Test
+	public void testGroups() {
+		TypeIndex index = sparseType.getIndex();
+		assertEquals(3, index.getGroupCount());
+		assertArrayEquals(new int[] {1, 2}, index.getGroupCells(0));
+		assertArrayEquals(new int[] {0, 1, 2}, index.getGroupCells(1));
+		assertArrayEquals(new int[] {2}, index.getGroupCells(2));
+		assertEquals(1|2|4, index.getGroupBitset(1));
+		assertArrayEquals(new int[] {1}, index.getCellGroups(0));
+		assertArrayEquals(new int[] {0, 1}, index.getCellGroups(1));
+		assertArrayEquals(new int[] {0, 1, 2}, index.getCellGroups(2));
+	}
+
+	@Test
+	public void testCellGroupsSorted() {
+		TypeIndex index = type.getIndex();
+		for (int id = 0; id < index.getCellCount(); id++) {
+			int[] groups = index.getCellGroups(id);
+			assertEquals(3, groups.length);
+			for (int i = 1; i < groups.length; i++)
+				assertTrue(groups[i - 1] < groups[i]);
+		}
+	}
+
+	@Test
+	public void testPeers() {
+		checkPeers(type.getIndex());
+		checkPeers(sparseType.getIndex());
+		// row, column and box of a 4x4 sudoku
+		for (int id = 0; id < 16; id++)
+			assertEquals(8, type.getIndex().getPeers(id).length);
+	}
+
+	/**
+	 * Checks that the peers of each cell start with the cell itself, have no
+	 * duplicates and are the union of the cells of the groups of the cell.
+	 * Checks that bit i of the peer group mask is set if and only if the peer
+	 * is in group i of the cell, so the mask of the cell itself has all bits
+	 * set.
+	 */
+	private static void checkPeers(TypeIndex index) {
+		for (int id = 0; id < index.getCellCount(); id++) {
+			int[] peers = index.getPeers(id);
+			int[] peerGroups = index.getPeerGroups(id);
+			int[] groups = index.getCellGroups(id);
+			assertEquals(peers.length, peerGroups.length);
+			assertEquals(id, peers[0]);
+			assertEquals(set(0, 0, groups.length), peerGroups[0]);
+			Set<Integer> unique = new HashSet<Integer>();
+			for (int peer : peers)
+				assertTrue(unique.add(peer));
+			Set<Integer> union = new HashSet<Integer>();
+			for (int group : groups)
+				for (int cell : index.getGroupCells(group))
+					union.add(cell);
+			assertEquals(union, unique);
+			for (int p = 0; p < peers.length; p++)
+				for (int i = 0; i < groups.length; i++)
+					assertEquals(contains(index.getGroupCells(groups[i]), peers[p]),
+							get(peerGroups[p], i));
+		}
+	}
+
+	private static boolean contains(int[] cells, int cell) {
+		for (int c : cells)
+			if (c == cell)
+				return true;
+		return false;
+	}
+
+	@Test
+	public void testSparsePeerGroups() {
+		TypeIndex index = sparseType.getIndex();
+		// cell (2,1) is in the groups 0, 1 and 2
+		assertArrayEquals(new int[] {2, 1, 0}, index.getPeers(2));
+		assertArrayEquals(new int[] {1|2|4, 1|2, 2}, index.getPeerGroups(2));
+	}
+
+	@Test
+	public void testInvalidation() {
+		TypeIndex index = sparseType.getIndex();
+		assertSame(index, sparseType.getIndex());
+		sparseType.addCellGroup(new CellGroup(1, new Cell(1, 1)));
+		TypeIndex index2 = sparseType.getIndex();
+		assertNotSame(index, index2);
+		assertEquals(3, index.getCellCount());
+		assertEquals(4, index2.getCellCount());
+		assertEquals(2, index2.getCellId(1, 1));
+		assertArrayEquals(new int[] {3}, index2.getCellGroups(2));
+		sparseType.removeGroup(3);
+		assertNotSame(index2, sparseType.getIndex());
+		assertEquals(3, sparseType.getIndex().getCellCount());
+	}
+
+	@Test
+	public void testCellLookup() {
+		TypeIndex index = sparseType.getIndex();
+		Cell cell = new Cell(4, 5);
+		sparseType.addCellGroup(new CellGroup(1, cell));
+		assertSame(cell, sparseType.getCell(4, 5));
+		assertTrue(sparseType.hasCellIndex(4, 5));
+		assertTrue(sparseType.hasCellIndex(new Cell(4, 5)));
+		assertFalse(sparseType.hasCellIndex(4, 4));
+		assertFalse(sparseType.hasCellIndex(new Cell(3, 5)));
+		assertNull(sparseType.getCell(-1, 0));
+		assertNull(sparseType.getCell(0, -1));
+		assertNull(sparseType.getCell(5, 0));
+		assertNull(sparseType.getCell(0, 4));
+		sparseType.removeGroup(3);
+		assertNull(sparseType.getCell(4, 5));
+		assertFalse(sparseType.hasCellIndex(4, 5));
+		assertFalse(sparseType.hasCellIndex(cell));
+		// the cells of the remaining groups are still found
+		assertSame(index.getCell(1), sparseType.getCell(0, 3));
+		assertTrue(sparseType.hasCellIndex(new Cell(2, 1)));
+	}
+
+	@Test
+	public void testCopy() {
+		TypeIndex index = type.getIndex();
+		Type copy = type.copy();
+		assertSame(index, copy.getIndex());
+		assertSame(index.getCell(5), copy.getCell(1, 1));
+		// a change of the copy does not change the index of the original
+		copy.removeGroup(0);
+		assertNotSame(index, copy.getIndex());
+		assertSame(index, type.getIndex());
+	}
+
+}